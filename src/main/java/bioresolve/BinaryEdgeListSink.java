@@ -0,0 +1,98 @@
+package bioresolve;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Writes the graph as a compact binary edge list.<br>
+ * The file starts with a magic number and the format version (two big-endian ints), followed by a record for each node,
+ * label and edge, in the order in which they have been reached. Each record starts with its tag, and all the numbers in
+ * it are unsigned LEB128 varints:
+ * <ul>
+ *     <li>{@link #NODE}: the id, then the result and the contexts as strings;</li>
+ *     <li>{@link #LABEL}: the id, then the entities as a string;</li>
+ *     <li>{@link #EDGE}: the ids of the source node, of the target node and of the label.</li>
+ * </ul>
+ * Strings are written as their length in bytes followed by their UTF-8 bytes, and sets of entities as their symbols
+ * separated by commas.
+ */
+public class BinaryEdgeListSink extends GraphSink {
+    public static final int MAGIC = 0x42525347; // "BRSG"
+    public static final int VERSION = 1;
+
+    public static final byte NODE = 0;
+    public static final byte LABEL = 1;
+    public static final byte EDGE = 2;
+
+    private final DataOutputStream out;
+
+    /**
+     * Creates the file (or truncates it) and writes the header.
+     * @param file The output file.
+     * @param compress True to compress the file with gzip.
+     * @throws IOException If the file cannot be opened.
+     */
+    public BinaryEdgeListSink(final Path file, final boolean compress) throws IOException {
+        this.out = new DataOutputStream(open(file, compress));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    @Override
+    public void node(final int id, final Set<Entity> result, final String context) {
+        try {
+            out.writeByte(NODE);
+            writeVarint(id);
+            writeString(Entity.stringifyEntitiesCollection(result));
+            writeString(context);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void label(final int id, final Set<Entity> entities) {
+        try {
+            out.writeByte(LABEL);
+            writeVarint(id);
+            writeString(Entity.stringifyEntitiesCollection(entities));
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void edge(final int from, final int to, final int label, final Set<Entity> entities) {
+        try {
+            out.writeByte(EDGE);
+            writeVarint(from);
+            writeVarint(to);
+            writeVarint(label);
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeVarint(int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte(v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private void writeString(final String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+}
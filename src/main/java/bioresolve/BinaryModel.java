@@ -0,0 +1,456 @@
+package bioresolve;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Reads and writes models in a compact binary format, so that a model can be loaded without parsing its textual
+ * specification again.<br>
+ * The file starts with a header made of a magic number, the format version, the hash of the sources the model has been
+ * compiled from (used for detecting stale files) and the hash of the payload (used for detecting corrupted files).
+ * The payload holds, in order:
+ * <ul>
+ *     <li>the paths of the source files, if known, so that a stale model can be compiled again;</li>
+ *     <li>the symbol table, where the first symbols are those of the reaction system's entity table, which is adopted
+ *     as it is when reading the model;</li>
+ *     <li>the entities of the reaction system, as symbol ids;</li>
+ *     <li>the compiled reactions, as reactant, inhibitor and product masks over the symbol ids, which are adopted as
+ *     they are as well;</li>
+ *     <li>the environment definitions and the parallel contexts, as a prefix encoding of their components.</li>
+ * </ul>
+ * Strings are written as their length in bytes followed by their UTF-8 bytes.
+ */
+public class BinaryModel {
+    private static final int MAGIC = 0x4252534D; // "BRSM"
+    private static final int VERSION = 2;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_LENGTH = 4 + 4 + HASH_LENGTH + HASH_LENGTH;
+
+    private static final byte NIL = 0;
+    private static final byte ENTITIES = 1;
+    private static final byte ID = 2;
+    private static final byte REPEATED = 3;
+    private static final byte CHOICE = 4;
+
+    private BinaryModel() {}
+
+    /**
+     * Computes the hash of the sources of a model, to be stored in the binary file.
+     * @param sources The textual specifications (e.g. reactions, environment and context).
+     * @return The hash of the sources.
+     */
+    public static byte[] hashSources(final String... sources) {
+        final MessageDigest digest = newDigest();
+
+        for (final String s : sources) {
+            final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            digest.update(ByteBuffer.allocate(4).putInt(bytes.length).flip());
+            digest.update(bytes);
+        }
+
+        return digest.digest();
+    }
+
+    /**
+     * Computes the hash of the source files of a model, to be stored in the binary file.
+     * @param sources The files of the textual specifications.
+     * @return The hash of the sources.
+     * @throws IOException If a file cannot be read.
+     */
+    public static byte[] hashSources(final Path... sources) throws IOException {
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[1 << 16];
+
+        for (final Path p : sources) {
+            digest.update(ByteBuffer.allocate(8).putLong(Files.size(p)).flip());
+            try (final InputStream in = Files.newInputStream(p)) {
+                for (int read; (read = in.read(buffer)) > 0; )
+                    digest.update(buffer, 0, read);
+            }
+        }
+
+        return digest.digest();
+    }
+
+    /**
+     * Writes a model to a binary file, recording the paths of its source files.
+     * @param file The destination file.
+     * @param model The model.
+     * @param sources The files the model has been loaded from.
+     * @throws IOException If a source file or the destination file cannot be read or written.
+     */
+    public static void write(final Path file, final Model model, final Path... sources) throws IOException {
+        final Path[] absolute = new Path[sources.length];
+        for (int i = 0; i < sources.length; ++i)
+            absolute[i] = sources[i].toAbsolutePath();
+
+        write(file, model, hashSources(absolute), absolute);
+    }
+
+    /**
+     * Writes a model to a binary file.
+     * @param file The destination file.
+     * @param model The model.
+     * @param sourceHash The hash of the sources of the model (see {@link #hashSources(String...)}).
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(final Path file, final Model model, final byte[] sourceHash) throws IOException {
+        write(file, model, sourceHash, new Path[0]);
+    }
+
+    private static void write(final Path file, final Model model, final byte[] sourceHash, final Path[] sources) throws IOException {
+        if (sourceHash.length != HASH_LENGTH)
+            throw new IllegalArgumentException("The source hash has to be " + HASH_LENGTH + " bytes long.");
+
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_LENGTH); // The header is written last, once the payload hash is known
+
+            final MessageDigest digest = newDigest();
+            final DataOutputStream out = new DataOutputStream(new DigestOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), digest));
+
+            new Writer(out, model.reactionSystem()).write(model, sources);
+            out.flush();
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .put(sourceHash)
+                    .put(digest.digest())
+                    .flip();
+            channel.write(header, 0);
+        }
+    }
+
+    /**
+     * Reads a model from a binary file, mapping it into memory.
+     * @param file The binary file.
+     * @return The model.
+     * @throws IOException If the file cannot be read, if it is not a model of the supported version or if it is
+     * corrupted.
+     */
+    public static Model read(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("The model " + file + " is too large.");
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            readHeader(buffer, file);
+
+            final byte[] payloadHash = new byte[HASH_LENGTH];
+            buffer.position(4 + 4 + HASH_LENGTH);
+            buffer.get(payloadHash);
+
+            final MessageDigest digest = newDigest();
+            digest.update(buffer.duplicate());
+            if (!MessageDigest.isEqual(payloadHash, digest.digest()))
+                throw new IOException("The model " + file + " is corrupted.");
+
+            try {
+                return new Reader(buffer).read();
+            } catch (RuntimeException e) {
+                throw new IOException("The model " + file + " is corrupted. " + e, e);
+            }
+        }
+    }
+
+    /**
+     * Reads the paths of the source files recorded in a binary model.
+     * @param file The binary file.
+     * @return The paths of the sources, which is empty if they have not been recorded.
+     * @throws IOException If the file cannot be read, or if it is not a model of the supported version.
+     */
+    public static Path[] readSources(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            readHeader(buffer, file);
+
+            buffer.position(HEADER_LENGTH);
+            try {
+                return new Reader(buffer).readSources();
+            } catch (RuntimeException e) {
+                throw new IOException("The model " + file + " is corrupted. " + e, e);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a binary model has been compiled from the given sources.
+     * @param file The binary file.
+     * @param sourceHash The hash of the current sources.
+     * @return True if the model is up to date, false if it is stale.
+     * @throws IOException If the file cannot be read or if it is not a model of the supported version.
+     */
+    public static boolean isUpToDate(final Path file, final byte[] sourceHash) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining() && channel.read(header) >= 0) {}
+            header.flip();
+
+            readHeader(header, file);
+
+            final byte[] stored = new byte[HASH_LENGTH];
+            header.get(stored);
+
+            return MessageDigest.isEqual(stored, sourceHash);
+        }
+    }
+
+    /**
+     * Checks the magic number and the version, leaving the buffer positioned at the source hash.
+     */
+    private static void readHeader(final ByteBuffer buffer, final Path file) throws IOException {
+        if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC)
+            throw new IOException("The file " + file + " is not a binary model.");
+
+        final int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("The model " + file + " has version " + version + ", while " + VERSION + " is supported.");
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e); // Every JVM is required to provide it
+        }
+    }
+
+    /**
+     * Encodes the payload of a model.
+     */
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final ReactionMasks masks;
+        private final List<Entity> symbols = new ArrayList<>();
+        private final Map<Entity, Integer> symbolIds = new HashMap<>();
+
+        private Writer(final DataOutputStream out, final ReactionSystem rs) {
+            this.out = out;
+            this.masks = rs.getReactionMasks();
+
+            final EntityTable table = rs.getEntityTable();
+            for (int id = 0; id < table.size(); ++id)
+                symbolOf(table.entityOf(id));
+        }
+
+        private int symbolOf(final Entity e) {
+            return symbolIds.computeIfAbsent(e, k -> {
+                symbols.add(k);
+                return symbols.size() - 1;
+            });
+        }
+
+        private void write(final Model model, final Path[] sources) throws IOException {
+            // The contexts are encoded first, so that all of their symbols are known when writing the table
+            final ByteArrayOutputStream contextBytes = new ByteArrayOutputStream();
+            final DataOutputStream contexts = new DataOutputStream(contextBytes);
+
+            final Map<String, Context> env = model.environment().getEnv();
+            contexts.writeInt(env.size());
+            for (final Map.Entry<String, Context> e : env.entrySet()) {
+                writeString(contexts, e.getKey());
+                writeContext(contexts, e.getValue());
+            }
+
+            contexts.writeInt(model.contexts().size());
+            for (final Context c : model.contexts())
+                writeContext(contexts, c);
+
+            final Set<Entity> entities = model.reactionSystem().getEntities();
+            for (final Entity e : entities)
+                symbolOf(e);
+
+            out.writeInt(sources.length);
+            for (final Path p : sources)
+                writeString(out, p.toString());
+
+            out.writeInt(symbols.size());
+            out.writeInt(masks.table.size());
+            for (final Entity e : symbols)
+                writeString(out, e.symbol());
+
+            out.writeInt(entities.size());
+            for (final Entity e : entities)
+                out.writeInt(symbolOf(e));
+
+            out.writeInt(masks.size());
+            out.writeInt(masks.words);
+            for (int r = 0; r < masks.size(); ++r) {
+                writeMask(masks.reactants, r);
+                writeMask(masks.inhibitors, r);
+                writeMask(masks.products, r);
+            }
+
+            contextBytes.writeTo(out);
+        }
+
+        private static void writeString(final DataOutputStream out, final String s) throws IOException {
+            final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeMask(final long[] mask, final int r) throws IOException {
+            for (int k = 0; k < masks.words; ++k)
+                out.writeLong(mask[r * masks.words + k]);
+        }
+
+        private void writeContext(final DataOutputStream out, final Context ctx) throws IOException {
+            final List<ContextComponent> components = ctx.getContext();
+
+            out.writeInt(components.size());
+            for (final ContextComponent c : components)
+                writeComponent(out, c);
+        }
+
+        private void writeComponent(final DataOutputStream out, final ContextComponent comp) throws IOException {
+            if (comp instanceof EntitiesContextComponent entities) {
+                out.writeByte(ENTITIES);
+                out.writeInt(entities.getEntities().size());
+                for (final Entity e : entities.getEntities())
+                    out.writeInt(symbolOf(e));
+            } else if (comp instanceof IdContextComponent id) {
+                out.writeByte(ID);
+                writeString(out, id.getId());
+            } else if (comp instanceof RepeatedContextComponent repeated) {
+                out.writeByte(REPEATED);
+                out.writeInt(repeated.getRepetitions());
+                writeComponent(out, repeated.getRepeatedComponent());
+            } else if (comp instanceof ChoiceContextComponent choice) {
+                out.writeByte(CHOICE);
+                out.writeInt(choice.getChoices().size());
+                for (final Context c : choice.getChoices())
+                    writeContext(out, c);
+            } else
+                out.writeByte(NIL);
+        }
+    }
+
+    /**
+     * Decodes the payload of a model.
+     */
+    private static final class Reader {
+        private final ByteBuffer in;
+        private Entity[] symbols;
+
+        private Reader(final ByteBuffer in) {
+            this.in = in;
+        }
+
+        private Path[] readSources() {
+            final Path[] sources = new Path[in.getInt()];
+            for (int i = 0; i < sources.length; ++i)
+                sources[i] = Path.of(readString());
+
+            return sources;
+        }
+
+        private Model read() {
+            readSources();
+
+            symbols = new Entity[in.getInt()];
+            final int tableSize = in.getInt();
+            for (int i = 0; i < symbols.length; ++i)
+                symbols[i] = new Entity(readString());
+
+            final EntityTable table = EntityTable.ofOrdered(Arrays.copyOf(symbols, tableSize));
+
+            final Set<Entity> entities = new HashSet<>();
+            for (int i = in.getInt(); i > 0; --i)
+                entities.add(symbols[in.getInt()]);
+
+            final int n = in.getInt();
+            final int words = in.getInt();
+            final long[] reactants = new long[n * words];
+            final long[] inhibitors = new long[n * words];
+            final long[] products = new long[n * words];
+            for (int r = 0; r < n; ++r) {
+                readMask(reactants, r, words);
+                readMask(inhibitors, r, words);
+                readMask(products, r, words);
+            }
+
+            final ReactionSystem rs = ReactionSystem.compiled(entities, table, new ReactionMasks(table, words, reactants, inhibitors, products));
+
+            final Map<String, Context> env = new HashMap<>();
+            for (int i = in.getInt(); i > 0; --i) {
+                final String name = readString();
+                env.put(name, readContext());
+            }
+
+            final List<Context> contexts = new ArrayList<>();
+            for (int i = in.getInt(); i > 0; --i)
+                contexts.add(readContext());
+
+            return new Model(rs, new Environment(env), contexts);
+        }
+
+        private String readString() {
+            final int length = in.getInt();
+            if (length < 0 || length > in.remaining())
+                throw new IllegalStateException("Invalid string length " + length);
+
+            final byte[] bytes = new byte[length];
+            in.get(bytes);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void readMask(final long[] mask, final int r, final int words) {
+            for (int k = 0; k < words; ++k)
+                mask[r * words + k] = in.getLong();
+        }
+
+        private Context readContext() {
+            final int size = in.getInt();
+            final List<ContextComponent> components = new ArrayList<>(size);
+
+            for (int i = 0; i < size; ++i)
+                components.add(readComponent());
+
+            return ContextFactory.context(components);
+        }
+
+        private ContextComponent readComponent() {
+            final byte tag = in.get();
+
+            return switch (tag) {
+                case NIL -> ContextFactory.nil();
+                case ENTITIES -> {
+                    final int size = in.getInt();
+                    final List<Entity> entities = new ArrayList<>(size);
+                    for (int i = 0; i < size; ++i)
+                        entities.add(symbols[in.getInt()]);
+                    yield ContextFactory.entities(entities);
+                }
+                case ID -> ContextFactory.id(readString());
+                case REPEATED -> {
+                    final int n = in.getInt();
+                    yield ContextFactory.repeated(n, readComponent());
+                }
+                case CHOICE -> {
+                    final int size = in.getInt();
+                    final List<Context> choices = new ArrayList<>(size);
+                    for (int i = 0; i < size; ++i)
+                        choices.add(readContext());
+                    yield ContextFactory.choice(choices);
+                }
+                default -> throw new IllegalStateException("Unknown component tag " + tag);
+            };
+        }
+    }
+}
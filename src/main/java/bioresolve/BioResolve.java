@@ -1,16 +1,219 @@
 package bioresolve;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
 /**
  * This is the main class for running the project. It shows a basic GUI which allows the insertion of
  * reactions, environment, and context.<br>
- * Running the computation generates a dot file in the current directory.
+ * If the paths of the reactions, (optionally) environment, and context files are provided as arguments, the model is
+ * loaded from them and computed without showing the GUI. A model can also be compiled to a {@link BinaryModel binary
+ * file} with <i>--compile</i>, and later computed by passing the binary file alone (it is compiled again if its sources
+ * have changed). The number of threads exploring the
+ * states can be set with <i>--threads</i>, their order with <i>--strategy</i>, and a partial exploration in bounded
+ * memory can be requested with <i>--bitstate</i>, <i>--depth</i> or <i>--max-frontier</i>. A complete exploration of a
+ * state space larger than the memory can be requested with <i>--disk</i>. The states only differing by the order of the
+ * parallel processes are identified with <i>--symmetry</i>.<br>
+ * Running the computation generates a dot file in the current directory, unless another file or {@link GraphFormat
+ * format} is chosen with <i>--output</i> and <i>--format</i> (and compressed with <i>--gzip</i>). The graph
+ * is reduced to its quotient by bisimulation with <i>--minimize</i>.
  * @author caba
  */
 public class BioResolve {
     static final boolean DEBUG = false;
     static boolean OUT = true;
 
+    private static final String USAGE = """
+            Usage: BioResolve
+                   BioResolve [<options>] <reactions file> [<environment file>] <context file>
+                   BioResolve --compile <binary model file> <reactions file> [<environment file>] <context file>
+                   BioResolve [<options>] <binary model file>
+            Options:
+                   --threads <n>           Explores the states on n threads
+                   --bitstate <megabytes>  Records the visited states as bits of an array of the given size, which
+                                           may omit part of the states
+                   --strategy <bfs|dfs|id> Explores the states breadth-first, depth-first (the default) or by
+                                           iterative deepening
+                   --depth <n>             Stops the exploration after n steps
+                   --max-frontier <n>      Stops the exploration when more than n managers are waiting
+                   --symmetry              Identifies the states only differing by the order of the processes
+                   --disk <directory>      Keeps the visited states and most of the waiting managers in files of
+                                           the given directory
+                   --output <file>         Writes the graph to the given file (result.<format> by default)
+                   --format <format>       Writes the graph as dot (the default), binary, graphml, jsonl or csv
+                   --gzip                  Compresses the graph with gzip
+                   --minimize              Merges the bisimilar states of the graph before writing it""";
+
+    private static final int BITSTATE_HASHES = 3;
+    private static final long DISK_EXPECTED_STATES = 1 << 20;
+    private static final int DISK_MANAGERS_IN_MEMORY = 1 << 16;
+
     public static void main(String[] args) {
-        MainFrame frame = new MainFrame();
+        if (args.length == 0) {
+            MainFrame frame = new MainFrame();
+            return;
+        }
+
+        Path compileTo = null;
+        int threads = 1;
+        long bitstateMegabytes = -1;
+        ExplorationStrategy strategy = ExplorationStrategy.DFS;
+        int depthBound = 0;
+        int maximumFrontierSize = 0;
+        boolean symmetryReduction = false;
+        Path diskDirectory = null;
+        Path output = null;
+        GraphFormat format = GraphFormat.DOT;
+        boolean compress = false;
+        boolean minimize = false;
+
+        int firstSource = 0;
+        try {
+            for (; firstSource < args.length && args[firstSource].startsWith("--"); ++firstSource) {
+                if (args[firstSource].equals("--symmetry")) {
+                    symmetryReduction = true;
+                    continue;
+                }
+                if (args[firstSource].equals("--gzip")) {
+                    compress = true;
+                    continue;
+                }
+                if (args[firstSource].equals("--minimize")) {
+                    minimize = true;
+                    continue;
+                }
+
+                if (firstSource + 1 == args.length)
+                    usage();
+
+                final String value = args[firstSource + 1];
+                switch (args[firstSource++]) {
+                    case "--compile" -> compileTo = Path.of(value);
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    case "--bitstate" -> bitstateMegabytes = Long.parseLong(value);
+                    case "--strategy" -> strategy = switch (value) {
+                        case "bfs" -> ExplorationStrategy.BFS;
+                        case "dfs" -> ExplorationStrategy.DFS;
+                        case "id" -> ExplorationStrategy.ITERATIVE_DEEPENING;
+                        default -> throw new IllegalArgumentException();
+                    };
+                    case "--depth" -> depthBound = Integer.parseInt(value);
+                    case "--max-frontier" -> maximumFrontierSize = Integer.parseInt(value);
+                    case "--disk" -> diskDirectory = Path.of(value);
+                    case "--output" -> output = Path.of(value);
+                    case "--format" -> format = GraphFormat.valueOf(value.toUpperCase());
+                    default -> usage();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            usage();
+        }
+
+        final int sources = args.length - firstSource;
+        if (sources != 1 && sources != 2 && sources != 3 || compileTo != null && sources == 1)
+            usage();
+
+        try {
+            ManagersCoordinator.setParallelism(threads);
+            ManagersCoordinator.setExplorationStrategy(strategy);
+            ManagersCoordinator.setDepthBound(depthBound);
+            ManagersCoordinator.setMaximumFrontierSize(maximumFrontierSize);
+            ManagersCoordinator.setSymmetryReduction(symmetryReduction);
+            ManagersCoordinator.setGraphOutput(
+                    output != null ? output : Path.of("result." + format.getExtension()),
+                    format,
+                    compress
+            );
+            ManagersCoordinator.setMinimization(minimize);
+            if (diskDirectory != null)
+                ManagersCoordinator.setFrontierSpill(new ManagerSpill(diskDirectory), DISK_MANAGERS_IN_MEMORY);
+
+            OUT = false;
+
+            final Model model;
+            if (sources == 1)
+                model = loadBinaryModel(Path.of(args[firstSource]));
+            else {
+                final Path[] paths = new Path[sources];
+                for (int i = 0; i < sources; ++i)
+                    paths[i] = Path.of(args[firstSource + i]);
+
+                model = loadModel(paths);
+
+                if (compileTo != null) {
+                    BinaryModel.write(compileTo, model, paths);
+                    return;
+                }
+            }
+
+            List<InteractiveProcess> pi = InteractiveProcess.createParallelProcesses(model.environment(), model.contexts());
+
+            ManagersCoordinator.setRS(model.reactionSystem());
+            ManagersCoordinator coordinator = ManagersCoordinator.getInstance();
+            if (bitstateMegabytes >= 0)
+                coordinator.setVisitedStateStore(new BitstateVisitedStateStore(bitstateMegabytes * 8 * 1024 * 1024, BITSTATE_HASHES));
+            else if (diskDirectory != null)
+                coordinator.setVisitedStateStore(new MappedVisitedStateStore(diskDirectory, DISK_EXPECTED_STATES));
+
+            coordinator.spawnManager(pi);
+            coordinator.getLastManager().bindManagerToProcesses();
+
+            Duration totalTime = coordinator.compute();
+
+            System.out.println("Total time " + (float) totalTime.toNanos() / 1000000000 + "s");
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads a model from the files of its reactions, (optionally) environment and context.
+     * @param paths The paths of the files.
+     * @return The model.
+     * @throws IOException If a file cannot be read.
+     */
+    private static Model loadModel(final Path[] paths) throws IOException {
+        return new Model(
+                ModelLoader.loadReactions(paths[0]),
+                paths.length == 3 ? ModelLoader.loadEnvironment(paths[1]) : new Environment(""),
+                ModelLoader.loadContext(paths[paths.length - 1])
+        );
+    }
+
+    /**
+     * Loads a binary model. If the sources it has been compiled from have changed since, it is compiled again; if they
+     * cannot be found, a warning is printed.
+     * @param file The binary model file.
+     * @return The model.
+     * @throws IOException If the model or its sources cannot be read, or if the model cannot be compiled again.
+     */
+    private static Model loadBinaryModel(final Path file) throws IOException {
+        final Path[] paths = BinaryModel.readSources(file);
+
+        for (final Path p : paths)
+            if (!Files.isRegularFile(p)) {
+                System.out.println("[Warning] The source " + p + " of the model " + file + " cannot be found: the model may be stale.");
+                return BinaryModel.read(file);
+            }
+
+        if (paths.length == 0 || BinaryModel.isUpToDate(file, BinaryModel.hashSources(paths)))
+            return BinaryModel.read(file);
+
+        System.out.println("[Warning] The sources of the model " + file + " have changed: compiling it again.");
+
+        final Model model = loadModel(paths);
+        BinaryModel.write(file, model, paths);
+
+        return model;
+    }
+
+    private static void usage() {
+        System.err.println(USAGE);
+        System.exit(1);
     }
 }
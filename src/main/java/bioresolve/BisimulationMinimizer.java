@@ -0,0 +1,401 @@
+package bioresolve;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes the quotient of a graph by the coarsest strong bisimulation, with the partition refinement algorithm of
+ * Paige and Tarjan, in O(m log n) time.<br>
+ * Two nodes are bisimilar if they have the same result and, for each edge leaving either of them, the other has an edge
+ * with the same label towards a bisimilar node. The contexts of the processes are not observed, hence nodes reached by
+ * different processes which behave alike are merged.<br>
+ * The algorithm refines partitions of unlabeled transitions, thus each edge is replaced by a node standing for its label,
+ * which has the source of the edge as its only predecessor and the target as its only successor: two edges are then
+ * equivalent if they have the same label and bisimilar targets.<br>
+ * Each node of the quotient is the first node of its class (in particular, the initial node is kept), and its edges are
+ * those of the class, deduplicated.
+ */
+public final class BisimulationMinimizer {
+    private BisimulationMinimizer() {}
+
+    /**
+     * Computes the quotient of a graph by the coarsest strong bisimulation.
+     * @param graph The graph.
+     * @return A new graph, the quotient, whose buffers have to be released by {@link OffHeapGraph#clear()}.
+     * @throws IllegalArgumentException If the graph has too many edges to be minimized.
+     */
+    public static OffHeapGraph minimize(final OffHeapGraph graph) throws IllegalArgumentException {
+        final int nodes = graph.nodeCount();
+        final int edges = graph.edgeCount();
+
+        if (edges == 0)
+            return new OffHeapGraph();
+        if ((long) nodes + edges > Integer.MAX_VALUE || edges > Integer.MAX_VALUE / 2)
+            throw new IllegalArgumentException("The graph has too many edges to be minimized.");
+
+        final int[] from = new int[edges];
+        final int[] to = new int[edges];
+        final int[] label = new int[edges];
+        for (int e = 0; e < edges; ++e) {
+            from[e] = graph.edgeFrom(e);
+            to[e] = graph.edgeTo(e);
+            label[e] = graph.edgeLabel(e);
+        }
+
+        // The nodes are classified by their result, and the nodes standing for the edges by their label
+        final int[] classes = new int[nodes + edges];
+        final Map<EntitySet, Integer> results = new HashMap<>();
+        for (int i = 0; i < nodes; ++i)
+            classes[i] = results.computeIfAbsent(graph.nodeResult(i), k -> results.size());
+        for (int e = 0; e < edges; ++e)
+            classes[nodes + e] = results.size() + label[e];
+
+        final int[] blocks = new Refinement(nodes, from, to, classes, results.size() + graph.labelCount()).refine();
+
+        final int[] representatives = new int[nodes + edges];
+        Arrays.fill(representatives, -1);
+        for (int i = 0; i < nodes; ++i)
+            if (representatives[blocks[i]] < 0)
+                representatives[blocks[i]] = i;
+
+        final OffHeapGraph quotient = new OffHeapGraph();
+        for (int e = 0; e < edges; ++e) {
+            final int source = representatives[blocks[from[e]]];
+            final int target = representatives[blocks[to[e]]];
+
+            quotient.addEdge(new NodePair(
+                    graph.nodeResult(source),
+                    graph.nodeContext(source),
+                    graph.nodeResult(target),
+                    graph.nodeContext(target),
+                    graph.label(label[e])
+            ));
+        }
+
+        return quotient;
+    }
+
+    /**
+     * The relational coarsest partition problem over the nodes of a graph and the nodes standing for its edges.<br>
+     * The blocks of the current partition are kept as ranges of an array of the states, and are split by moving the
+     * marked states to the front of their range. The blocks are grouped in compound blocks, the partition which the
+     * current one is stable with respect to: a compound block made of many blocks is refined by splitting one of its
+     * smallest blocks off, and the current partition is made stable with respect to the two parts. The number of
+     * transitions from each state to each compound block is counted, so that the states only reaching the split block
+     * are found without visiting the rest of the compound block.
+     */
+    private static final class Refinement {
+        private final int states;
+        private final int[] sources; // The source of each transition
+        private final int[] inStart; // The incoming transitions of each state, in the ranges of an array
+        private final int[] in;
+
+        private final int[] elements;
+        private final int[] locations;
+        private final int[] blockOf;
+        private final int[] first;
+        private final int[] end;
+        private final int[] marked;
+        private final int[] touched;
+        private int touchedNumber;
+        private int blocksNumber;
+
+        private final int[] compoundOf; // The compound block of each block
+        private final int[] next; // The blocks of each compound block, in a doubly linked list
+        private final int[] previous;
+        private final int[] head;
+        private final int[] size; // The number of blocks of each compound block
+        private final int[] compound; // The compound blocks made of more than one block
+        private final boolean[] pending;
+        private int compoundNumber;
+        private int compoundsNumber;
+
+        private int[] counts; // The number of transitions from a state to a compound block
+        private int[] free;
+        private int freeNumber;
+        private int countsNumber;
+        private final int[] countOf; // The count of each transition, from its source to the compound block of its target
+
+        /**
+         * @param nodes The number of nodes of the graph, followed by a state for each edge.
+         * @param from The source of each edge.
+         * @param to The target of each edge.
+         * @param classes The initial class of each state.
+         * @param classesNumber The number of classes.
+         */
+        private Refinement(final int nodes, final int[] from, final int[] to, final int[] classes, final int classesNumber) {
+            final int edges = from.length;
+            final int transitions = 2 * edges;
+
+            this.states = nodes + edges;
+
+            // Each edge e becomes the transitions e, from its source, and edges + e, to its target
+            this.sources = new int[transitions];
+            this.inStart = new int[states + 1];
+            this.in = new int[transitions];
+            for (int e = 0; e < edges; ++e) {
+                sources[e] = from[e];
+                sources[edges + e] = nodes + e;
+                ++inStart[nodes + e + 1];
+                ++inStart[to[e] + 1];
+            }
+            for (int i = 0; i < states; ++i)
+                inStart[i + 1] += inStart[i];
+
+            final int[] cursor = Arrays.copyOf(inStart, states);
+            for (int e = 0; e < edges; ++e) {
+                in[cursor[nodes + e]++] = e;
+                in[cursor[to[e]]++] = edges + e;
+            }
+
+            this.elements = new int[states];
+            this.locations = new int[states];
+            this.blockOf = new int[states];
+            this.first = new int[states];
+            this.end = new int[states];
+            this.marked = new int[states];
+            this.touched = new int[states];
+
+            this.compoundOf = new int[states];
+            this.next = new int[states];
+            this.previous = new int[states];
+            this.head = new int[states];
+            this.size = new int[states];
+            this.compound = new int[states];
+            this.pending = new boolean[states];
+
+            this.counts = new int[Math.max(states, 16)];
+            this.free = new int[16];
+            this.countOf = new int[transitions];
+
+            // The initial partition groups the states by class, in a single compound block
+            final int[] classStart = new int[classesNumber + 1];
+            for (int i = 0; i < states; ++i)
+                ++classStart[classes[i] + 1];
+            for (int c = 0; c < classesNumber; ++c)
+                classStart[c + 1] += classStart[c];
+
+            final int[] classBlock = new int[classesNumber];
+            for (int c = 0; c < classesNumber; ++c) {
+                if (classStart[c] == classStart[c + 1])
+                    continue;
+
+                final int b = blocksNumber++;
+                first[b] = end[b] = classStart[c];
+                classBlock[c] = b;
+            }
+
+            for (int i = 0; i < states; ++i) {
+                final int b = classBlock[classes[i]];
+                elements[end[b]] = i;
+                locations[i] = end[b]++;
+                blockOf[i] = b;
+            }
+
+            compoundsNumber = 1;
+            head[0] = -1;
+            for (int b = 0; b < blocksNumber; ++b)
+                join(b, 0);
+
+            // The partition has to be stable with respect to the whole set of states, separating those which can move
+            final int[] outDegree = new int[states];
+            for (final int s : sources)
+                ++outDegree[s];
+
+            for (int i = 0; i < states; ++i) {
+                if (outDegree[i] == 0)
+                    continue;
+
+                mark(i);
+                counts[countsNumber++] = outDegree[i];
+                outDegree[i] = countsNumber - 1;
+            }
+            for (int t = 0; t < transitions; ++t)
+                countOf[t] = outDegree[sources[t]];
+
+            split();
+        }
+
+        /**
+         * Refines the partition until it is stable with respect to itself.
+         * @return The block of each state.
+         */
+        private int[] refine() {
+            final int[] splitter = new int[states];
+            final int[] predecessors = new int[states];
+            final int[] countToSplitter = new int[states];
+            final int[] visited = new int[states];
+            Arrays.fill(countToSplitter, -1);
+            int round = 0;
+
+            while (compoundNumber > 0) {
+                final int s = compound[--compoundNumber];
+                pending[s] = false;
+
+                // The smaller one of two blocks has at most half of the states of the compound block
+                final int b1 = head[s];
+                final int b2 = next[b1];
+                final int b = end[b1] - first[b1] <= end[b2] - first[b2] ? b1 : b2;
+
+                leave(b);
+                if (size[s] > 1)
+                    push(s);
+
+                head[compoundsNumber] = -1;
+                join(b, compoundsNumber++);
+
+                // The block may be split below, thus its states are copied
+                final int splitterSize = end[b] - first[b];
+                System.arraycopy(elements, first[b], splitter, 0, splitterSize);
+
+                // Splits the blocks with respect to the states reaching the splitter
+                int predecessorsNumber = 0;
+                for (int i = 0; i < splitterSize; ++i) {
+                    final int y = splitter[i];
+                    for (int j = inStart[y]; j < inStart[y + 1]; ++j) {
+                        final int x = sources[in[j]];
+
+                        if (countToSplitter[x] < 0) {
+                            countToSplitter[x] = newCount();
+                            predecessors[predecessorsNumber++] = x;
+                            mark(x);
+                        }
+                        ++counts[countToSplitter[x]];
+                    }
+                }
+                split();
+
+                // Splits them with respect to the states reaching the splitter but not the rest of the compound block
+                ++round;
+                for (int i = 0; i < splitterSize; ++i) {
+                    final int y = splitter[i];
+                    for (int j = inStart[y]; j < inStart[y + 1]; ++j) {
+                        final int x = sources[in[j]];
+
+                        if (visited[x] != round && counts[countOf[in[j]]] == counts[countToSplitter[x]]) {
+                            visited[x] = round;
+                            mark(x);
+                        }
+                    }
+                }
+                split();
+
+                // The transitions to the splitter are now counted apart from those to the rest of the compound block
+                for (int i = 0; i < splitterSize; ++i) {
+                    final int y = splitter[i];
+                    for (int j = inStart[y]; j < inStart[y + 1]; ++j) {
+                        final int t = in[j];
+
+                        if (--counts[countOf[t]] == 0)
+                            releaseCount(countOf[t]);
+                        countOf[t] = countToSplitter[sources[t]];
+                    }
+                }
+
+                for (int i = 0; i < predecessorsNumber; ++i)
+                    countToSplitter[predecessors[i]] = -1;
+            }
+
+            return blockOf;
+        }
+
+        private void mark(final int state) {
+            final int b = blockOf[state];
+            final int i = locations[state];
+            final int j = first[b] + marked[b];
+
+            elements[i] = elements[j];
+            locations[elements[i]] = i;
+            elements[j] = state;
+            locations[state] = j;
+
+            if (marked[b]++ == 0)
+                touched[touchedNumber++] = b;
+        }
+
+        /**
+         * Splits each block having marked states into the marked and the unmarked ones, the smaller part becoming a new
+         * block of the same compound block.
+         */
+        private void split() {
+            while (touchedNumber > 0) {
+                final int b = touched[--touchedNumber];
+                final int j = first[b] + marked[b];
+
+                if (j == end[b]) {
+                    marked[b] = 0;
+                    continue;
+                }
+
+                final int z = blocksNumber++;
+                if (marked[b] <= end[b] - j) {
+                    first[z] = first[b];
+                    end[z] = j;
+                    first[b] = j;
+                } else {
+                    end[z] = end[b];
+                    first[z] = j;
+                    end[b] = j;
+                }
+
+                for (int i = first[z]; i < end[z]; ++i)
+                    blockOf[elements[i]] = z;
+
+                marked[b] = marked[z] = 0;
+                join(z, compoundOf[b]);
+            }
+        }
+
+        private void join(final int block, final int c) {
+            compoundOf[block] = c;
+            previous[block] = -1;
+            next[block] = head[c];
+            if (head[c] >= 0)
+                previous[head[c]] = block;
+            head[c] = block;
+
+            if (++size[c] > 1 && !pending[c])
+                push(c);
+        }
+
+        private void leave(final int block) {
+            final int c = compoundOf[block];
+
+            if (previous[block] >= 0)
+                next[previous[block]] = next[block];
+            else
+                head[c] = next[block];
+            if (next[block] >= 0)
+                previous[next[block]] = previous[block];
+
+            --size[c];
+        }
+
+        private void push(final int c) {
+            pending[c] = true;
+            compound[compoundNumber++] = c;
+        }
+
+        private int newCount() {
+            final int c;
+            if (freeNumber > 0)
+                c = free[--freeNumber];
+            else {
+                if (countsNumber == counts.length)
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                c = countsNumber++;
+            }
+
+            counts[c] = 0;
+            return c;
+        }
+
+        private void releaseCount(final int c) {
+            if (freeNumber == free.length)
+                free = Arrays.copyOf(free, free.length * 2);
+
+            free[freeNumber++] = c;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package bioresolve;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A visited state store recording each state as a few bits of a preallocated bit array (bitstate hashing, also known as
+ * supertrace).<br>
+ * A state is considered visited when all of its bits are set, thus a new state whose bits have all been set by other
+ * states is wrongly considered visited, and it is omitted together with whatever is reachable only through it. In
+ * exchange, the memory used is fixed and a few bits per state suffice: the exploration is partial, and the store reports
+ * how much of the state space has probably been covered.<br>
+ * The values associated with the fingerprints are not stored: the value of a visited state is always 0.
+ */
+public class BitstateVisitedStateStore extends VisitedStateStore {
+    private final AtomicLongArray bits;
+    private final long size; // Number of bits
+    private final int hashes;
+
+    private final LongAdder setBits = new LongAdder();
+    private final LongAdder storedStates = new LongAdder();
+    private final DoubleAdder expectedOmissions = new DoubleAdder();
+
+    /**
+     * @param size The number of bits of the array.
+     * @param hashes The number of bits set for each state, i.e. the number of hash functions.
+     * @throws IllegalArgumentException If the size is not positive or exceeds the maximum size of an array of longs, or
+     *                                  if the number of hash functions is not positive.
+     */
+    public BitstateVisitedStateStore(final long size, final int hashes) throws IllegalArgumentException {
+        if (size <= 0 || (size + 63) >>> 6 > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Invalid size of the bit array: " + size);
+        if (hashes <= 0)
+            throw new IllegalArgumentException("The number of hash functions has to be positive.");
+
+        this.bits = new AtomicLongArray((int) ((size + 63) >>> 6));
+        this.size = size;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Sets the bits of the state.
+     * @param fingerprint The fingerprint of the state.
+     * @param value Ignored, since values are not stored.
+     * @return {@link #ABSENT} if at least one bit was not set, 0 otherwise.
+     */
+    @Override
+    public long putIfAbsent(final long fingerprint, final long value) {
+        int newBits = 0;
+
+        final long step = StateFingerprint.mix(fingerprint) | 1; // Double hashing
+        for (int i = 0; i < hashes; ++i) {
+            final long bit = Long.remainderUnsigned(fingerprint + i * step, size);
+            final int w = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+
+            if ((bits.getAndUpdate(w, x -> x | mask) & mask) == 0) {
+                setBits.increment();
+                ++newBits;
+            }
+        }
+
+        if (newBits > 0) {
+            // The new states omitted before recording this one, given the fill of the array before it
+            final double p = Math.pow((double) (setBits.sum() - newBits) / size, hashes);
+            expectedOmissions.add(p / (1 - p));
+
+            storedStates.increment();
+            return ABSENT;
+        }
+
+        return 0;
+    }
+
+    @Override
+    public long get(final long fingerprint) {
+        final long step = StateFingerprint.mix(fingerprint) | 1;
+        for (int i = 0; i < hashes; ++i) {
+            final long bit = Long.remainderUnsigned(fingerprint + i * step, size);
+
+            if ((bits.get((int) (bit >>> 6)) & 1L << bit) == 0)
+                return ABSENT;
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return The number of states recorded, i.e. of insertions which set at least one bit.
+     */
+    @Override
+    public long size() {
+        return storedStates.sum();
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < bits.length(); ++i)
+            bits.set(i, 0);
+
+        setBits.reset();
+        storedStates.reset();
+        expectedOmissions.reset();
+    }
+
+    /**
+     * @return The fraction of the bits which are set.
+     */
+    public double getFillRatio() {
+        return (double) setBits.sum() / size;
+    }
+
+    /**
+     * Returns the probability that a new state is wrongly considered visited, given the current fill of the array.
+     * @return The probability of omission.
+     */
+    public double getOmissionProbability() {
+        return Math.pow(getFillRatio(), hashes);
+    }
+
+    /**
+     * Estimates the number of new states which have been wrongly considered visited while recording the current ones.
+     * When a fraction <i>f</i> of the bits is set, a new state is omitted with probability <i>p = f<sup>k</sup></i>,
+     * where <i>k</i> is the number of hash functions, hence <i>p / (1 - p)</i> states are expected to be omitted before
+     * recording the next one. The fill is measured at each recording rather than modeled from the number of states,
+     * since a recorded state always sets at least one new bit and the array fills faster than with random bits.
+     * @return The expected number of omitted states.
+     */
+    public double getExpectedOmissions() {
+        return expectedOmissions.sum();
+    }
+
+    /**
+     * @return The estimated fraction of the reachable states which have been visited.
+     */
+    public double getEstimatedCoverage() {
+        final long n = size();
+        return n == 0 ? 1 : n / (n + getExpectedOmissions());
+    }
+
+    @Override
+    public String toString() {
+        return "Bitstate store (" + size + " bits, " + hashes + " hash functions): " + size() + " states, " +
+                String.format("%.4f", getFillRatio() * 100) + "% of the bits set, probability of omission " +
+                String.format("%.3e", getOmissionProbability()) + ", estimated coverage " +
+                String.format("%.4f", getEstimatedCoverage() * 100) + "%";
+    }
+}
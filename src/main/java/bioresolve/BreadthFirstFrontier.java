@@ -0,0 +1,93 @@
+package bioresolve;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A first-in first-out frontier.<br>
+ * With a {@link ManagerSpill spill}, the managers pushed while the queue holds more than the given number of them are
+ * gathered in blocks of half that number, which are written to disk and read back in turn once the managers before them
+ * have all been polled.
+ */
+public class BreadthFirstFrontier extends Frontier {
+    private final ArrayDeque<ProcessManager> queue = new ArrayDeque<>();
+
+    private final ManagerSpill spill;
+    private final int managersInMemory;
+    private final ArrayDeque<ProcessManager> tail = new ArrayDeque<>(); // Pushed after the spilled blocks
+    private final ArrayDeque<Path> spilledBlocks = new ArrayDeque<>();
+    private final ArrayDeque<Integer> spilledSizes = new ArrayDeque<>();
+    private int spilledManagers;
+
+    public BreadthFirstFrontier() {
+        this(null, 0);
+    }
+
+    /**
+     * @param spill The spill receiving the managers exceeding the memory, or null to keep all of them in memory.
+     * @param managersInMemory The maximum number of managers kept in memory.
+     * @throws IllegalArgumentException If the spill is given and the number of managers is less than two.
+     */
+    public BreadthFirstFrontier(final ManagerSpill spill, final int managersInMemory) throws IllegalArgumentException {
+        if (spill != null && managersInMemory < 2)
+            throw new IllegalArgumentException("At least two managers have to be kept in memory.");
+
+        this.spill = spill;
+        this.managersInMemory = managersInMemory;
+    }
+
+    @Override
+    public void push(final ProcessManager manager) {
+        if (spill == null || spilledBlocks.isEmpty() && tail.isEmpty() && queue.size() < managersInMemory) {
+            queue.addLast(manager);
+            return;
+        }
+
+        tail.addLast(manager);
+
+        if (tail.size() == managersInMemory / 2) {
+            spilledBlocks.addLast(spill.write(tail));
+            spilledSizes.addLast(tail.size());
+            spilledManagers += tail.size();
+            tail.clear();
+        }
+    }
+
+    @Override
+    public ProcessManager poll() {
+        if (queue.isEmpty()) {
+            if (!spilledBlocks.isEmpty()) {
+                spilledManagers -= spilledSizes.pollFirst();
+                queue.addAll(spill.read(spilledBlocks.pollFirst()));
+            } else {
+                queue.addAll(tail);
+                tail.clear();
+            }
+        }
+
+        return queue.pollFirst();
+    }
+
+    @Override
+    public List<ProcessManager> clear() {
+        final List<ProcessManager> res = new ArrayList<>(queue.size() + tail.size());
+        res.addAll(queue);
+        res.addAll(tail);
+        queue.clear();
+        tail.clear();
+
+        while (!spilledBlocks.isEmpty())
+            spill.discard(spilledBlocks.pollFirst());
+        spilledSizes.clear();
+        spilledManagers = 0;
+
+        return res;
+    }
+
+    @Override
+    public int size() {
+        return queue.size() + tail.size() + spilledManagers;
+    }
+}
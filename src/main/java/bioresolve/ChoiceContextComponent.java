@@ -11,12 +11,21 @@ import java.util.Set;
  */
 public class ChoiceContextComponent extends ContextComponent {
     private final List<Context> choices;
+    private final int hash;
 
     /**
      * @param choices A list of contexts to choose from.
+     * @see ContextFactory#choice(List)
      */
     public ChoiceContextComponent(final List<Context> choices) {
         this.choices = choices;
+
+        int result = 17;
+
+        for (Context c : choices)
+            result = result * 37 + c.hashCode();
+
+        this.hash = result;
     }
     
     public List<Context> getChoices() {
@@ -54,16 +63,17 @@ public class ChoiceContextComponent extends ContextComponent {
     public String toString() {
         final StringBuilder s = new StringBuilder();
 
-        for (int i = 0; i < choices.size(); ++i) {
-            final List<ContextComponent> ctx = choices.get(i).getContext();
-            for (int j = 0; j < ctx.size(); ++j)
-                s.append(ctx.get(j).toString()).append(j < ctx.size() - 1 ? "." : "");
-            s.append(i < choices.size() - 1 ? " + " : "");
-        }
+        for (int i = 0; i < choices.size(); ++i)
+            s.append(choices.get(i)).append(i < choices.size() - 1 ? " + " : "");
 
         return s.toString();
     }
 
+    @Override
+    public String toSequenceString() {
+        return "(" + this + ")";
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -71,16 +81,12 @@ public class ChoiceContextComponent extends ContextComponent {
         if (this.getClass() != o.getClass()) return false;
 
         ChoiceContextComponent other = (ChoiceContextComponent) o;
+        if (hash != other.hash || bothCanonical(other)) return false;
         return choices.equals(other.choices);
     }
 
     @Override
     public int hashCode() {
-        int result = 17;
-
-        for (Context c : choices)
-            result = result * 37 + c.hashCode();
-
-        return result;
+        return hash;
     }
 }
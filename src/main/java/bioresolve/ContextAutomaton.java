@@ -0,0 +1,404 @@
+package bioresolve;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The automaton of the contexts defined by an {@link Environment}.<br>
+ * Its states are the program points of the processes, i.e. the {@link ContextSequence context sequences} they still
+ * have to compute. The variables, repetitions and choices ahead of a state are resolved only once, the first time a
+ * process leaves the state, into a {@link Step} labeled with the entities it provides: afterwards, processes advance by
+ * following the precomputed transitions. Since states are shared between structurally equal program points, recursive
+ * definitions become back-edges towards the states already built.<br>
+ * States are built lazily, hence contexts which keep growing (e.g. <i>x = {a}.x.{b}</i>) are only explored as far as the
+ * computation goes. They are also only weakly held by the automaton, so that the program points which no process can
+ * reach anymore (e.g. the iterations of a long repetition which have already been computed) are garbage collected: a
+ * state is kept as long as a process is at it or a kept state leads to it. The ids of the states are remembered by the
+ * {@link ContextSequence#programPoint() fingerprints} of their program points, which are never forgotten, hence a state
+ * which is built again after being collected gets its former id back (as for the states of the exploration, distinct
+ * program points are assumed to have distinct fingerprints). The automaton can be shared by processes running
+ * on different threads.
+ */
+public final class ContextAutomaton {
+    /**
+     * The kind of transition leaving a state.
+     */
+    public enum StepKind {
+        /** A set of entities is provided to the reaction system. */
+        ENTITIES,
+        /** The process reaches <i>nil</i>. */
+        NIL,
+        /** The process chooses between the branches of a choice. */
+        CHOICE,
+        /** The context sequence has been entirely computed. */
+        END
+    }
+
+    private final Environment environment;
+    private final Map<String, Integer> variableIds;
+    private final Map<Key, StateReference> states;
+    private final ReferenceQueue<State> collectedStates;
+    private final VisitedStateStore stateIds; // From the fingerprints of the program points to the ids of their states
+    private final AtomicInteger nextStateId;
+
+    /**
+     * @param environment The environment defining the variables of the contexts.
+     */
+    public ContextAutomaton(final Environment environment) {
+        this.environment = environment;
+        this.variableIds = new HashMap<>();
+        this.states = new ConcurrentHashMap<>();
+        this.collectedStates = new ReferenceQueue<>();
+        this.stateIds = new HeapVisitedStateStore(0);
+
+        final List<String> variables = new ArrayList<>(environment.getEnv().keySet());
+        Collections.sort(variables);
+        for (final String v : variables)
+            variableIds.put(v, variableIds.size());
+        this.nextStateId = new AtomicInteger();
+    }
+
+    /**
+     * @param ctx A context.
+     * @return The state of a process starting to compute the given context.
+     */
+    public State initialState(final Context ctx) {
+        return stateOf(ContextSequence.of(ContextFactory.canonical(ctx)));
+    }
+
+    /**
+     * @param variable A variable defined in the environment.
+     * @return The dense id of the variable, given following the lexicographical order of the variables.
+     * @throws IllegalArgumentException If the variable is not defined.
+     */
+    public int variableId(final String variable) throws IllegalArgumentException {
+        final Integer id = variableIds.get(variable);
+        if (id == null)
+            throw new IllegalArgumentException("The variable " + variable + " is not defined in the environment.");
+
+        return id;
+    }
+
+    /**
+     * @return The number of states currently held (some of which may have been garbage collected already).
+     */
+    public int size() {
+        expungeCollectedStates();
+
+        return states.size();
+    }
+
+    private State stateOf(final ContextSequence sequence) {
+        expungeCollectedStates();
+
+        final Key key = new Key(sequence);
+
+        while (true) {
+            final StateReference ref = states.get(key);
+            final State existing = ref == null ? null : ref.get();
+            if (existing != null)
+                return existing;
+
+            final State s = new State(stateId(key.programPoint), sequence);
+            final StateReference newRef = new StateReference(key, s, collectedStates);
+
+            // Another thread may have built the same state in the meantime, in which case the loop takes it
+            if (ref == null ? states.putIfAbsent(key, newRef) == null : states.replace(key, ref, newRef))
+                return s;
+        }
+    }
+
+    /**
+     * Returns the id of a program point, giving it a new one the first time.
+     */
+    private int stateId(final long programPoint) {
+        final long id = stateIds.get(programPoint);
+        if (id != VisitedStateStore.ABSENT)
+            return (int) id;
+
+        // Another thread may have given an id in the meantime, in which case the new one is left unused
+        final int newId = nextStateId.getAndIncrement();
+        final long existing = stateIds.putIfAbsent(programPoint, newId);
+
+        return existing == VisitedStateStore.ABSENT ? newId : (int) existing;
+    }
+
+    private void expungeCollectedStates() {
+        for (StateReference ref; (ref = (StateReference) collectedStates.poll()) != null; )
+            states.remove(ref.key, ref);
+    }
+
+    /**
+     * A weak reference to a state, remembering its key so that its entry can be removed once the state is collected.
+     */
+    private static final class StateReference extends WeakReference<State> {
+        private final Key key;
+
+        private StateReference(final Key key, final State state, final ReferenceQueue<State> queue) {
+            super(state, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * A program point of a process.
+     */
+    public final class State {
+        private final int id;
+        private final ContextSequence sequence;
+        private String string;
+        private volatile Step step;
+
+        private State(final int id, final ContextSequence sequence) {
+            this.id = id;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return The id of the state, given following the order in which program points are first reached. A
+         * program point which is built again after its state has been collected keeps its id.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return The context sequence which remains to be computed from this state.
+         */
+        public ContextSequence getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Returns the transition leaving this state, resolving it the first time.
+         * @return The step.
+         * @throws IllegalArgumentException If a variable is not defined in the environment or if it is recursively
+         *                                  substituted without computing any context (e.g. <i>x = x.{a}</i>).
+         */
+        public Step step() throws IllegalArgumentException {
+            Step s = step;
+
+            if (s == null) {
+                synchronized (this) {
+                    s = step;
+                    if (s == null) step = s = resolve();
+                }
+            }
+
+            return s;
+        }
+
+        /**
+         * Substitutes the variables, unrolls the repetitions and stops at the first choice or computed component.
+         */
+        private Step resolve() {
+            ContextSequence seq = sequence;
+            String firstSubstitution = null;
+            String lastSubstitution = null;
+            final Set<String> substituted = new HashSet<>();
+
+            while (!seq.isEmpty()) {
+                final ContextComponent head = seq.head();
+
+                if (head instanceof ChoiceContextComponent choice) {
+                    final List<State> branches = new ArrayList<>(choice.getChoices().size());
+                    for (final Context c : choice.getChoices())
+                        branches.add(stateOf(seq.tail().prepend(c)));
+
+                    return new Step(StepKind.CHOICE, null, false, null, branches, firstSubstitution, lastSubstitution);
+                } else if (head instanceof IdContextComponent idComponent) {
+                    final String id = idComponent.getId();
+                    final Context refContext = environment.getEnv().get(id);
+
+                    if (refContext == null)
+                        throw new IllegalArgumentException("The variable " + id + " is not defined in the environment.");
+                    if (!substituted.add(id))
+                        throw new IllegalArgumentException("The variable " + id + " is recursively substituted without computing any context.");
+
+                    if (firstSubstitution == null) firstSubstitution = id;
+                    lastSubstitution = id;
+
+                    if (BioResolve.OUT) System.out.println("[Info] Substituting " + id + " with " + refContext);
+
+                    seq = seq.tail().prepend(refContext);
+                } else if (head instanceof RepeatedContextComponent repeated) {
+                    final Context unrolled = repeated.unroll();
+                    if (unrolled.getContext().isEmpty())
+                        substituted.clear(); // The same variable can be substituted again after an empty repetition
+
+                    seq = seq.expandHead(unrolled);
+                } else {
+                    final StepKind kind = head instanceof NilContextComponent ? StepKind.NIL : StepKind.ENTITIES;
+
+                    return new Step(kind, head, seq.startsContext(), stateOf(seq.tail()), null, firstSubstitution, lastSubstitution);
+                }
+            }
+
+            return new Step(StepKind.END, null, false, null, null, firstSubstitution, lastSubstitution);
+        }
+
+        @Override
+        public String toString() {
+            String s = string;
+            if (s == null) string = s = sequence.toString();
+
+            return s;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 17;
+
+            result = result * 37 + sequence.hashCode();
+
+            return result;
+        }
+    }
+
+    /**
+     * A transition leaving a state.
+     */
+    public static final class Step {
+        private final StepKind kind;
+        private final ContextComponent component;
+        private final boolean startsContext;
+        private final State next;
+        private final List<State> branches;
+        private final String firstSubstitution;
+        private final String lastSubstitution;
+
+        private volatile EntitySet label;
+
+        private Step(
+                final StepKind kind,
+                final ContextComponent component,
+                final boolean startsContext,
+                final State next,
+                final List<State> branches,
+                final String firstSubstitution,
+                final String lastSubstitution
+        ) {
+            this.kind = kind;
+            this.component = component;
+            this.startsContext = startsContext;
+            this.next = next;
+            this.branches = branches;
+            this.firstSubstitution = firstSubstitution;
+            this.lastSubstitution = lastSubstitution;
+        }
+
+        public StepKind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return The computed component (for {@link StepKind#ENTITIES} and {@link StepKind#NIL} steps), or null.
+         */
+        public ContextComponent getComponent() {
+            return component;
+        }
+
+        /**
+         * @return The entities provided by an {@link StepKind#ENTITIES} step, which is empty for the other kinds.
+         */
+        public List<Entity> getEntities() {
+            return component instanceof EntitiesContextComponent entities ? entities.getEntities() : List.of();
+        }
+
+        /**
+         * Returns the entities provided by the step as a set backed by the given table. The set is cached and must not
+         * be modified.
+         * @param table The entity table.
+         * @return The set of entities.
+         */
+        public EntitySet getLabel(final EntityTable table) {
+            EntitySet l = label;
+
+            if (l == null || l.getTable() != table)
+                label = l = table.setOf(getEntities());
+
+            return l;
+        }
+
+        /**
+         * @return True if the computed component is the first one of the context it belongs to.
+         */
+        public boolean startsContext() {
+            return startsContext;
+        }
+
+        /**
+         * @return The state reached after computing the component, or null for {@link StepKind#CHOICE} and
+         *         {@link StepKind#END} steps.
+         */
+        public State getNext() {
+            return next;
+        }
+
+        /**
+         * @return The states of the branches of a {@link StepKind#CHOICE} step, or null.
+         */
+        public List<State> getBranches() {
+            return branches;
+        }
+
+        /**
+         * @return The first variable substituted while resolving the step, or null if there is none.
+         */
+        public String getFirstSubstitution() {
+            return firstSubstitution;
+        }
+
+        /**
+         * @return The last variable substituted while resolving the step, or null if there is none.
+         */
+        public String getLastSubstitution() {
+            return lastSubstitution;
+        }
+    }
+
+    /**
+     * Identifies a program point: two context sequences are the same program point if they have the same components and
+     * these start their contexts at the same positions. The fingerprint is {@link ContextSequence#programPoint() cached}
+     * by the sequences, and the comparison stops at the first shared tail, hence the remaining sequence is not walked
+     * again whenever a component is computed.
+     */
+    private static final class Key {
+        private final ContextSequence sequence;
+        private final long programPoint;
+        private final int hash;
+
+        private Key(final ContextSequence sequence) {
+            this.sequence = sequence;
+            this.programPoint = sequence.programPoint();
+            this.hash = Long.hashCode(programPoint);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null) return false;
+            if (this.getClass() != o.getClass()) return false;
+
+            Key other = (Key) o;
+            if (programPoint != other.programPoint) return false;
+
+            ContextSequence a = sequence;
+            ContextSequence b = other.sequence;
+            for (; !a.isEmpty() && !b.isEmpty(); a = a.tail(), b = b.tail()) {
+                if (a == b) return true;
+                if (a.startsContext() != b.startsContext() || !a.head().equals(b.head())) return false;
+            }
+
+            return a.isEmpty() && b.isEmpty();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
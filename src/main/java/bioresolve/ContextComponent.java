@@ -8,6 +8,29 @@ import java.util.Set;
  * @author caba
  */
 public abstract class ContextComponent {
+    private volatile boolean canonical; // Set once the instance has been interned by the ContextFactory
+
+    /**
+     * @return True if the instance is the canonical one held by the {@link ContextFactory}.
+     */
+    boolean isCanonical() {
+        return canonical;
+    }
+
+    void markCanonical() {
+        canonical = true;
+    }
+
+    /**
+     * Checks whether this component and another one are both canonical, in which case they are equal only if they are
+     * the same instance.
+     * @param other The other component.
+     * @return True if both components are canonical.
+     */
+    boolean bothCanonical(final ContextComponent other) {
+        return canonical && other.canonical;
+    }
+
     /**
      * This method shall return the sequence of entities present in the deriving component.
      * @return The list of entities.
@@ -20,6 +43,15 @@ public abstract class ContextComponent {
      */
     public abstract Set<Entity> getEntitiesSet();
 
+    /**
+     * Returns the string representation of the component when it is followed or preceded by other components in a
+     * sequence. Components binding less tightly than the sequence (i.e. choices) shall be parenthesized.
+     * @return The string representation.
+     */
+    public String toSequenceString() {
+        return toString();
+    }
+
     @Override
     public abstract String toString();
 }
@@ -0,0 +1,158 @@
+package bioresolve;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hash-consing factory of contexts and context components.<br>
+ * Structurally equal contexts (and components) built through this factory share a single <i>canonical</i> instance,
+ * whose sub-contexts and sub-components are canonical as well. Since the hash of every instance is computed once at
+ * construction, interning a new instance only costs a hash lookup comparing its children by reference, and two canonical
+ * instances are equal if and only if they are the same instance.<br>
+ * Canonical instances are only weakly referenced by the factory, so the ones which are no longer used (e.g. the
+ * intermediate unrollings of a repetition) can be garbage collected.
+ */
+public final class ContextFactory {
+    private static final int SEGMENTS = 16; // Must be a power of two
+
+    private static final List<Map<Object, WeakReference<Object>>> segments = new ArrayList<>(SEGMENTS);
+
+    static {
+        for (int i = 0; i < SEGMENTS; ++i)
+            segments.add(new WeakHashMap<>());
+    }
+
+    private static final NilContextComponent NIL = intern(new NilContextComponent());
+
+    private ContextFactory() {}
+
+    /**
+     * @param components The components of the context.
+     * @return The canonical context made of the given components.
+     */
+    public static Context context(final List<ContextComponent> components) {
+        final List<ContextComponent> canonicalComponents = new ArrayList<>(components.size());
+        for (final ContextComponent c : components)
+            canonicalComponents.add(canonical(c));
+
+        return intern(new Context(canonicalComponents));
+    }
+
+    /**
+     * @param entities The entities of the component.
+     * @return The canonical component made of the given entities.
+     */
+    public static EntitiesContextComponent entities(final List<Entity> entities) {
+        return intern(new EntitiesContextComponent(List.copyOf(entities)));
+    }
+
+    /**
+     * @return The canonical nil component.
+     */
+    public static NilContextComponent nil() {
+        return NIL;
+    }
+
+    /**
+     * @param id The id of the variable.
+     * @return The canonical component referring to the given variable.
+     */
+    public static IdContextComponent id(final String id) {
+        return intern(new IdContextComponent(id));
+    }
+
+    /**
+     * @param n The number of repetitions.
+     * @param c The context component to repeat.
+     * @return The canonical component repeating the given one.
+     * @throws IllegalArgumentException If the number of repetitions is negative.
+     */
+    public static RepeatedContextComponent repeated(final int n, final ContextComponent c) throws IllegalArgumentException {
+        return intern(new RepeatedContextComponent(n, canonical(c)));
+    }
+
+    /**
+     * @param choices The contexts to choose from.
+     * @return The canonical component choosing between the given contexts.
+     */
+    public static ChoiceContextComponent choice(final List<Context> choices) {
+        final List<Context> canonicalChoices = new ArrayList<>(choices.size());
+        for (final Context c : choices)
+            canonicalChoices.add(canonical(c));
+
+        return intern(new ChoiceContextComponent(canonicalChoices));
+    }
+
+    /**
+     * Returns the canonical instance of a context which may not have been built through this factory.
+     * @param ctx The context.
+     * @return The canonical context equal to the given one.
+     */
+    public static Context canonical(final Context ctx) {
+        return ctx.isCanonical() ? ctx : context(ctx.getContext());
+    }
+
+    /**
+     * Returns the canonical instance of a context component which may not have been built through this factory.
+     * @param comp The context component.
+     * @return The canonical component equal to the given one.
+     */
+    public static ContextComponent canonical(final ContextComponent comp) {
+        if (comp.isCanonical())
+            return comp;
+
+        if (comp instanceof EntitiesContextComponent entities)
+            return entities(entities.getEntities());
+        if (comp instanceof IdContextComponent id)
+            return id(id.getId());
+        if (comp instanceof RepeatedContextComponent repeated)
+            return repeated(repeated.getRepetitions(), repeated.getRepeatedComponent());
+        if (comp instanceof ChoiceContextComponent choice)
+            return choice(choice.getChoices());
+        if (comp instanceof NilContextComponent)
+            return NIL;
+
+        throw new IllegalArgumentException("Unknown context component " + comp.getClass().getSimpleName());
+    }
+
+    /**
+     * @return The number of canonical instances currently held by the factory.
+     */
+    public static int size() {
+        int res = 0;
+
+        for (final Map<Object, WeakReference<Object>> segment : segments) {
+            synchronized (segment) {
+                res += segment.size();
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Returns the canonical instance equal to a candidate, making the candidate itself canonical if there is none.
+     * The children of the candidate must already be canonical.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T intern(final T candidate) {
+        final Map<Object, WeakReference<Object>> segment = segments.get(candidate.hashCode() & (SEGMENTS - 1));
+
+        synchronized (segment) {
+            final WeakReference<Object> ref = segment.get(candidate);
+            final Object existing = ref == null ? null : ref.get();
+            if (existing != null)
+                return (T) existing;
+
+            if (candidate instanceof Context ctx) ctx.markCanonical();
+            else ((ContextComponent) candidate).markCanonical();
+
+            segment.put(candidate, new WeakReference<>(candidate));
+
+            return candidate;
+        }
+    }
+}
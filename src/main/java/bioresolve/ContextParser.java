@@ -0,0 +1,230 @@
+package bioresolve;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * A recursive-descent parser for contexts and environments, building the {@link ContextComponent components} in a
+ * single pass over the input. The grammar, from the lowest to the highest precedence, is:
+ * <pre>
+ * environment := [ definition (',' definition)* ]
+ * definition  := id '=' choice
+ * parallel    := choice (',' choice)*
+ * choice      := sequence ('+' sequence)*
+ * sequence    := atom ('.' atom)*
+ * atom        := 'nil' | '{' [ id (',' id)* ] '}' | '&lt;' number ',' atom '&gt;' | '(' choice ')' | id
+ * </pre>
+ * A parenthesized choice having a single alternative is spliced into the enclosing sequence. Errors are reported with
+ * their line and column.
+ */
+public class ContextParser {
+    private static final String NIL = "nil";
+
+    private final ModelScanner scanner;
+
+    /**
+     * @param reader The source of the context or environment.
+     */
+    public ContextParser(final Reader reader) {
+        this.scanner = new ModelScanner(reader);
+    }
+
+    /**
+     * Parses a string into multiple contexts if it represents a parallel composition.
+     * @param ctx The string representing the context.
+     * @return The list of parallel contexts.
+     * @throws ModelParseException If the context is wrongly specified.
+     */
+    public static List<Context> parseParallel(final String ctx) throws ModelParseException {
+        return new ContextParser(new StringReader(ctx)).parseParallel();
+    }
+
+    /**
+     * Parses a string representing a single context.
+     * @param ctx The string representing the context.
+     * @return The context.
+     * @throws ModelParseException If the context is wrongly specified.
+     */
+    public static Context parseContext(final String ctx) throws ModelParseException {
+        return new ContextParser(new StringReader(ctx)).parseContext();
+    }
+
+    /**
+     * Parses a string representing the definitions of an environment.
+     * @param env The string representing the environment.
+     * @return The mapping between variables and contexts.
+     * @throws ModelParseException If the environment is wrongly specified.
+     */
+    public static Map<String, Context> parseEnvironment(final String env) throws ModelParseException {
+        return new ContextParser(new StringReader(env)).parseEnvironment();
+    }
+
+    /**
+     * Parses the whole input as a parallel composition of contexts.
+     * @return The list of parallel contexts.
+     * @throws ModelParseException If the context is wrongly specified.
+     */
+    public List<Context> parseParallel() throws ModelParseException {
+        final List<Context> res = new ArrayList<>();
+
+        do res.add(toContext(parseChoice()));
+        while (scanner.accept(','));
+
+        expectEnd("',' or the end of the context");
+
+        return res;
+    }
+
+    /**
+     * Parses the whole input as a single context.
+     * @return The context.
+     * @throws ModelParseException If the context is wrongly specified.
+     */
+    public Context parseContext() throws ModelParseException {
+        final Context res = toContext(parseChoice());
+        expectEnd("the end of the context");
+
+        return res;
+    }
+
+    /**
+     * Parses the whole input as a list of definitions.
+     * @return The mapping between variables and contexts.
+     * @throws ModelParseException If the environment is wrongly specified or if a variable is defined twice.
+     */
+    public Map<String, Context> parseEnvironment() throws ModelParseException {
+        final Map<String, Context> res = new HashMap<>();
+
+        if (scanner.atEnd())
+            return res;
+
+        do {
+            scanner.skipWhitespace();
+            final int line = scanner.getLine();
+            final int column = scanner.getColumn();
+
+            final String varName = scanner.identifier("a variable name");
+            scanner.expect('=');
+            final Context ctx = toContext(parseChoice());
+
+            if (res.putIfAbsent(varName, ctx) != null)
+                throw new ModelParseException("the variable " + varName + " has been defined multiple times", line, column);
+
+            if (references(ctx, varName))
+                System.out.println("[Warning] The definition " + varName + " = " + ctx + " appears to be recursive. This can lead to non-termination.");
+        } while (scanner.accept(','));
+
+        expectEnd("',' or the end of the environment");
+
+        return res;
+    }
+
+    private void expectEnd(final String what) {
+        if (!scanner.atEnd())
+            throw scanner.error("expected " + what + " but found " + scanner.describeNext());
+    }
+
+    /**
+     * Builds a context out of the alternatives of a choice: a single alternative is the context itself, while multiple
+     * ones become a context made of a single {@link ChoiceContextComponent}.
+     */
+    private static Context toContext(final List<Context> alternatives) {
+        if (alternatives.size() == 1)
+            return alternatives.get(0);
+
+        final List<ContextComponent> res = new ArrayList<>(1);
+        res.add(ContextFactory.choice(alternatives));
+
+        return ContextFactory.context(res);
+    }
+
+    private List<Context> parseChoice() {
+        final List<Context> alternatives = new ArrayList<>();
+
+        do alternatives.add(ContextFactory.context(parseSequence()));
+        while (scanner.accept('+'));
+
+        return alternatives;
+    }
+
+    private List<ContextComponent> parseSequence() {
+        final List<ContextComponent> sequence = new ArrayList<>();
+
+        do {
+            if (!sequence.isEmpty() && sequence.get(sequence.size() - 1) instanceof NilContextComponent)
+                throw scanner.error("nil has to be the last component of a sequence");
+
+            parseAtom(sequence);
+        } while (scanner.accept('.'));
+
+        return sequence;
+    }
+
+    /**
+     * Parses an atom, appending its components to the given sequence.
+     * @param sequence The sequence being parsed.
+     */
+    private void parseAtom(final List<ContextComponent> sequence) {
+        if (scanner.accept('{')) {
+            final List<Entity> entities = new ArrayList<>();
+
+            if (!scanner.accept('}')) {
+                do entities.add(new Entity(scanner.identifier("an entity")));
+                while (scanner.accept(','));
+
+                scanner.expect('}');
+            }
+
+            sequence.add(ContextFactory.entities(entities));
+        } else if (scanner.accept('<')) {
+            final int line = scanner.getLine();
+            final int column = scanner.getColumn() - 1;
+
+            final int n = scanner.number("the number of repetitions");
+            scanner.expect(',');
+
+            final List<ContextComponent> repeated = new ArrayList<>(1);
+            parseAtom(repeated);
+            if (repeated.size() != 1)
+                throw new ModelParseException("a repetition has to contain a single component", line, column);
+
+            scanner.expect('>');
+
+            sequence.add(ContextFactory.repeated(n, repeated.get(0)));
+        } else if (scanner.accept('(')) {
+            final List<Context> alternatives = parseChoice();
+            scanner.expect(')');
+
+            if (alternatives.size() == 1)
+                sequence.addAll(alternatives.get(0).getContext());
+            else
+                sequence.add(ContextFactory.choice(alternatives));
+        } else {
+            final String id = scanner.identifier("a context component");
+            sequence.add(id.equals(NIL) ? ContextFactory.nil() : ContextFactory.id(id));
+        }
+    }
+
+    /**
+     * Checks whether a context refers to a given variable, possibly inside choices and repetitions.
+     */
+    private static boolean references(final Context ctx, final String varName) {
+        for (final ContextComponent comp : ctx.getContext())
+            if (references(comp, varName)) return true;
+
+        return false;
+    }
+
+    private static boolean references(final ContextComponent comp, final String varName) {
+        if (comp instanceof IdContextComponent id)
+            return id.getId().equals(varName);
+        if (comp instanceof RepeatedContextComponent repeated)
+            return references(repeated.getRepeatedComponent(), varName);
+        if (comp instanceof ChoiceContextComponent choice)
+            for (final Context c : choice.getChoices())
+                if (references(c, varName)) return true;
+
+        return false;
+    }
+}
@@ -0,0 +1,203 @@
+package bioresolve;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable sequence of context components, i.e. what remains to be computed of a process' context.<br>
+ * A sequence is made of a suffix of a {@link Context} (a <i>segment</i>) followed by another sequence. Substituting a
+ * variable (or taking an alternative of a choice) pushes the referred context in front of the remaining sequence, which
+ * is shared and never copied: both prepending a context and advancing by one component take constant time. The tail of
+ * a sequence is built once, so that the hashes cached by the tails are shared by the sequences they belong to.
+ */
+public final class ContextSequence implements Iterable<ContextComponent> {
+    public static final ContextSequence EMPTY = new ContextSequence(null, 0, null, false);
+
+    private final Context segment;
+    private final int offset;
+    private final ContextSequence rest;
+    private final boolean continuation; // Whether the segment continues the context of the component it replaced
+
+    private int hash; // Lazily computed, 0 if not computed yet
+    private long programPoint; // Lazily computed, 0 if not computed yet
+    private ContextSequence next; // The tail inside the segment, lazily built
+
+    private ContextSequence(final Context segment, final int offset, final ContextSequence rest, final boolean continuation) {
+        this.segment = segment;
+        this.offset = offset;
+        this.rest = rest;
+        this.continuation = continuation;
+    }
+
+    /**
+     * @param ctx A context.
+     * @return The sequence made of the components of the context.
+     */
+    public static ContextSequence of(final Context ctx) {
+        return EMPTY.prepend(ctx);
+    }
+
+    /**
+     * Creates the sequence made of the components of a context followed by those of this sequence.
+     * @param ctx The context to put in front of this sequence.
+     * @return The new sequence.
+     */
+    public ContextSequence prepend(final Context ctx) {
+        if (ctx.getContext().isEmpty())
+            return this;
+
+        return new ContextSequence(ctx, 0, this, false);
+    }
+
+    /**
+     * Replaces the first component of this sequence with the components of a context which continue the context of the
+     * replaced component (i.e. the unrolling of a repetition): the new sequence starts a context only if this one did.
+     * @param ctx The context replacing the first component.
+     * @return The new sequence.
+     * @throws NoSuchElementException If the sequence is empty.
+     */
+    public ContextSequence expandHead(final Context ctx) throws NoSuchElementException {
+        final ContextSequence rest = tail();
+        if (ctx.getContext().isEmpty())
+            return rest;
+
+        return new ContextSequence(ctx, 0, rest, !startsContext());
+    }
+
+    public boolean isEmpty() {
+        return segment == null;
+    }
+
+    /**
+     * @return The first component of the sequence.
+     * @throws NoSuchElementException If the sequence is empty.
+     */
+    public ContextComponent head() throws NoSuchElementException {
+        if (isEmpty())
+            throw new NoSuchElementException("The context sequence is empty");
+
+        return segment.getContext().get(offset);
+    }
+
+    /**
+     * @return The sequence without its first component.
+     * @throws NoSuchElementException If the sequence is empty.
+     */
+    public ContextSequence tail() throws NoSuchElementException {
+        if (isEmpty())
+            throw new NoSuchElementException("The context sequence is empty");
+
+        if (offset + 1 < segment.getContext().size()) {
+            ContextSequence t = next;
+            if (t == null) next = t = new ContextSequence(segment, offset + 1, rest, false);
+
+            return t;
+        }
+
+        return rest;
+    }
+
+    /**
+     * Computes the 64-bit fingerprint of the program point of the sequence, i.e. of its components together with
+     * whether they start their contexts. It is cached by each sequence, so it is only computed for the components ahead
+     * of the first tail whose fingerprint is known.
+     * @return The fingerprint, which is never 0.
+     */
+    long programPoint() {
+        if (programPoint != 0)
+            return programPoint;
+
+        // Iterative, since the sequences of growing recursive contexts can be very long
+        final List<ContextSequence> pending = new ArrayList<>();
+        ContextSequence seq = this;
+        for (; !seq.isEmpty() && seq.programPoint == 0; seq = seq.tail())
+            pending.add(seq);
+
+        long result = seq.isEmpty() ? 0x6A09E667F3BCC909L : seq.programPoint;
+        for (int i = pending.size() - 1; i >= 0; --i) {
+            final ContextSequence s = pending.get(i);
+
+            result = StateFingerprint.mix(result * 0x9E3779B97F4A7C15L
+                    + ((long) s.head().hashCode() << 1 | (s.startsContext() ? 1 : 0)));
+            if (result == 0) result = 1;
+
+            s.programPoint = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks whether the first component is the first one of the context it belongs to, that is the context has just
+     * been put in front of the sequence (or the sequence has just been created).
+     * @return True if the first component starts its context.
+     */
+    public boolean startsContext() {
+        return !isEmpty() && offset == 0 && !continuation;
+    }
+
+    @Override
+    public Iterator<ContextComponent> iterator() {
+        return new Iterator<>() {
+            private ContextSequence current = ContextSequence.this;
+
+            @Override
+            public boolean hasNext() {
+                return !current.isEmpty();
+            }
+
+            @Override
+            public ContextComponent next() {
+                final ContextComponent res = current.head();
+                current = current.tail();
+                return res;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder s = new StringBuilder();
+
+        final boolean inSequence = !isEmpty() && !tail().isEmpty();
+
+        for (ContextSequence seq = this; !seq.isEmpty(); seq = seq.tail()) {
+            s.append(inSequence ? seq.head().toSequenceString() : seq.head());
+            if (!seq.tail().isEmpty()) s.append(".");
+        }
+
+        return s.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null) return false;
+        if (this.getClass() != o.getClass()) return false;
+
+        ContextSequence other = (ContextSequence) o;
+        if (hashCode() != other.hashCode()) return false;
+
+        final Iterator<ContextComponent> it = other.iterator();
+        for (final ContextComponent c : this)
+            if (!it.hasNext() || !c.equals(it.next())) return false;
+
+        return !it.hasNext();
+    }
+
+    @Override
+    public int hashCode() {
+        if (hash == 0) {
+            int result = 17;
+
+            for (final ContextComponent c : this)
+                result = result * 37 + c.hashCode();
+
+            hash = result == 0 ? 1 : result;
+        }
+
+        return hash;
+    }
+}
@@ -0,0 +1,85 @@
+package bioresolve;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Writes the graph as two CSV tables (RFC 4180, with a header row): the nodes (<i>id,result,context</i>) and the edges
+ * (<i>from,to,label</i>). Given a file <i>graph.csv</i>, they are written to <i>graph.nodes.csv</i> and
+ * <i>graph.edges.csv</i>.
+ */
+public class CsvSink extends GraphSink {
+    private final Writer nodes;
+    private final Writer edges;
+
+    /**
+     * Creates the files (or truncates them) and writes their header rows.
+     * @param file The output file, from which the names of the tables are derived.
+     * @param compress True to compress the files with gzip.
+     * @throws IOException If the files cannot be opened.
+     */
+    public CsvSink(final Path file, final boolean compress) throws IOException {
+        this.nodes = openWriter(tableFile(file, "nodes"), compress);
+        try {
+            this.edges = openWriter(tableFile(file, "edges"), compress);
+        } catch (IOException e) {
+            nodes.close();
+            throw e;
+        }
+
+        nodes.write("id,result,context\r\n");
+        edges.write("from,to,label\r\n");
+    }
+
+    /**
+     * @param file The output file.
+     * @param table The name of the table.
+     * @return The file of the table, i.e. the output file with the name of the table inserted before its <i>.csv</i>
+     *         extension (which is added if missing).
+     */
+    public static Path tableFile(final Path file, final String table) {
+        final String name = file.getFileName().toString();
+        final int ext = name.lastIndexOf(".csv");
+        final String tableName = ext < 0
+                ? name + "." + table + ".csv"
+                : name.substring(0, ext) + "." + table + name.substring(ext);
+
+        return file.resolveSibling(tableName);
+    }
+
+    @Override
+    public void node(final int id, final Set<Entity> result, final String context) {
+        try {
+            nodes.write(id + "," + field(Entity.stringifyEntitiesCollection(result)) + "," + field(context) + "\r\n");
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void edge(final int from, final int to, final int label, final Set<Entity> entities) {
+        try {
+            edges.write(from + "," + to + "," + field(Entity.stringifyEntitiesCollection(entities)) + "\r\n");
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            nodes.close();
+        } finally {
+            edges.close();
+        }
+    }
+
+    private static String field(final String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0)
+            return s;
+
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,82 @@
+package bioresolve;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A last-in first-out frontier.<br>
+ * With a {@link ManagerSpill spill}, when the managers in memory exceed the given number, the older half of them is
+ * written to disk. Blocks are read back, latest first, once the managers in memory have all been polled.
+ */
+public class DepthFirstFrontier extends Frontier {
+    private final ArrayDeque<ProcessManager> stack = new ArrayDeque<>();
+
+    private final ManagerSpill spill;
+    private final int managersInMemory;
+    private final ArrayDeque<Path> spilledBlocks = new ArrayDeque<>();
+    private final ArrayDeque<Integer> spilledSizes = new ArrayDeque<>();
+    private int spilledManagers;
+
+    public DepthFirstFrontier() {
+        this(null, 0);
+    }
+
+    /**
+     * @param spill The spill receiving the managers exceeding the memory, or null to keep all of them in memory.
+     * @param managersInMemory The maximum number of managers kept in memory.
+     * @throws IllegalArgumentException If the spill is given and the number of managers is less than two.
+     */
+    public DepthFirstFrontier(final ManagerSpill spill, final int managersInMemory) throws IllegalArgumentException {
+        if (spill != null && managersInMemory < 2)
+            throw new IllegalArgumentException("At least two managers have to be kept in memory.");
+
+        this.spill = spill;
+        this.managersInMemory = managersInMemory;
+    }
+
+    @Override
+    public void push(final ProcessManager manager) {
+        stack.addFirst(manager);
+
+        if (spill != null && stack.size() > managersInMemory) {
+            final List<ProcessManager> block = new ArrayList<>(managersInMemory / 2);
+            for (int i = 0; i < managersInMemory / 2; ++i)
+                block.add(stack.pollLast()); // From the oldest
+
+            spilledBlocks.addFirst(spill.write(block));
+            spilledSizes.addFirst(block.size());
+            spilledManagers += block.size();
+        }
+    }
+
+    @Override
+    public ProcessManager poll() {
+        if (stack.isEmpty() && !spilledBlocks.isEmpty()) {
+            spilledManagers -= spilledSizes.pollFirst();
+            for (final ProcessManager m : spill.read(spilledBlocks.pollFirst()))
+                stack.addFirst(m); // The newest ends up on top
+        }
+
+        return stack.pollFirst();
+    }
+
+    @Override
+    public List<ProcessManager> clear() {
+        final List<ProcessManager> res = new ArrayList<>(stack);
+        stack.clear();
+
+        while (!spilledBlocks.isEmpty())
+            spill.discard(spilledBlocks.pollFirst());
+        spilledSizes.clear();
+        spilledManagers = 0;
+
+        return res;
+    }
+
+    @Override
+    public int size() {
+        return stack.size() + spilledManagers;
+    }
+}
@@ -0,0 +1,52 @@
+package bioresolve;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Writes a DOT graph. Each node is declared once, with a numeric id and its label, and the edges refer to the nodes by
+ * their ids only (e.g. <i>n12 -> n57</i>), hence long labels are not repeated on every edge.
+ */
+public class DotGraphSink extends GraphSink {
+    private final Writer out;
+
+    /**
+     * Creates the file (or truncates it) and writes the header of the graph.
+     * @param file The DOT file.
+     * @param compress True to compress the file with gzip.
+     * @throws IOException If the file cannot be opened.
+     */
+    public DotGraphSink(final Path file, final boolean compress) throws IOException {
+        this.out = openWriter(file, compress);
+        out.write("digraph G {\nnode [shape=box]\nedge [arrowhead=vee]\n");
+    }
+
+    @Override
+    public void node(final int id, final Set<Entity> result, final String context) {
+        try {
+            out.write("n" + id + " [label = \"" + Entity.stringifyEntitiesCollection(result) + context + "\"];\n");
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void edge(final int from, final int to, final int label, final Set<Entity> entities) {
+        try {
+            out.write("n" + from + " -> n" + to + " [label = \"" + Entity.stringifyEntitiesCollection(entities) + "\"];\n");
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write("}\n");
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -10,12 +10,21 @@ import java.util.Set;
  */
 public class EntitiesContextComponent extends ContextComponent {
     private final List<Entity> entities;
+    private final int hash;
 
     /**
      * @param entities The list of entities the component is made of.
+     * @see ContextFactory#entities(List)
      */
     public EntitiesContextComponent(final List<Entity> entities) {
         this.entities = entities;
+
+        int result = 17;
+
+        for (Entity e : entities)
+            result = result * 37 + e.hashCode();
+
+        this.hash = result;
     }
     
     public List<Entity> getEntities() {
@@ -51,16 +60,12 @@ public class EntitiesContextComponent extends ContextComponent {
         if (this.getClass() != o.getClass()) return false;
 
         EntitiesContextComponent other = (EntitiesContextComponent) o;
+        if (hash != other.hash || bothCanonical(other)) return false;
         return entities.equals(other.entities);
     }
 
     @Override
     public int hashCode() {
-        int result = 17;
-
-        for (Entity e : entities)
-            result = result * 37 + e.hashCode();
-
-        return result;
+        return hash;
     }
 }
@@ -1,10 +1,9 @@
 package bioresolve;
 
+import java.io.StringReader;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * This class represents a single entity of the system.
@@ -39,20 +38,13 @@ public class Entity {
      * This method allows to avoid specifying every single entity before running the program.
      * @param reactions The string representing the reactions.
      * @return A set of instances of this class.
-     * @throws IllegalArgumentException
+     * @throws IllegalArgumentException If the reactions are wrongly specified.
      */
     public static Set<Entity> extrapolateEntitiesFromReactionsString(final String reactions) throws IllegalArgumentException {
-        final Set<Entity> res = new HashSet<>();
-
-        final String entityPattern = "\\w+";
-
-        final Pattern pattern = Pattern.compile(entityPattern);
-        final Matcher matcher = pattern.matcher(reactions);
+        final ReactionParser parser = new ReactionParser(new StringReader(reactions));
+        parser.parse();
 
-        while (matcher.find())
-            res.add(new Entity(matcher.group(0)));
-
-        return res;
+        return parser.getEntities();
     }
 
     /**
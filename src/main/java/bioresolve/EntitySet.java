@@ -0,0 +1,257 @@
+package bioresolve;
+
+import java.util.*;
+
+/**
+ * A compact set of entities, stored as a bitset over the ids given by an {@link EntityTable}.<br>
+ * Union, containment and intersection checks between sets sharing the same table are performed word by word, without
+ * hashing any entity.
+ */
+public class EntitySet extends AbstractSet<Entity> {
+    private static final long[] EMPTY = new long[0];
+
+    private final EntityTable table;
+    private long[] words;
+
+    /**
+     * @param table The table from which the entity ids are taken.
+     */
+    public EntitySet(final EntityTable table) {
+        this.table = table;
+        this.words = table.wordCount() == 0 ? EMPTY : new long[table.wordCount()];
+    }
+
+    /**
+     * Creates a copy of the given set.
+     * @param other The set to copy.
+     */
+    public EntitySet(final EntitySet other) {
+        this.table = other.table;
+        this.words = other.words.clone();
+    }
+
+    /**
+     * Creates a set out of its raw words.
+     * @param table The table from which the entity ids are taken.
+     * @param words The words of the bitset, which are not copied.
+     */
+    EntitySet(final EntityTable table, final long[] words) {
+        this.table = table;
+        this.words = words;
+    }
+
+    public EntityTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return The words of the bitset. The returned array is not a copy, and its length may exceed the used words.
+     */
+    long[] words() {
+        return words;
+    }
+
+    /**
+     * Checks whether the entity having the given id belongs to the set.
+     * @param id The id of the entity.
+     * @return True if the entity belongs to the set.
+     */
+    public boolean containsId(final int id) {
+        final int w = id >>> 6;
+        return w < words.length && (words[w] & (1L << id)) != 0;
+    }
+
+    /**
+     * Adds the entity having the given id to the set.
+     * @param id The id of the entity.
+     * @return True if the set did not already contain the entity.
+     */
+    public boolean addId(final int id) {
+        final int w = id >>> 6;
+        if (w >= words.length)
+            words = Arrays.copyOf(words, Math.max(w + 1, table.wordCount()));
+
+        final long old = words[w];
+        words[w] |= 1L << id;
+
+        return old != words[w];
+    }
+
+    /**
+     * Returns the first id belonging to the set which is greater or equal to the given one.
+     * @param from The id from which to start searching.
+     * @return The id found, or -1 if there is none.
+     */
+    public int nextId(final int from) {
+        int w = from >>> 6;
+        if (w >= words.length)
+            return -1;
+
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0)
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == words.length)
+                return -1;
+            word = words[w];
+        }
+    }
+
+    /**
+     * Checks whether this set has at least one entity in common with another set.
+     * @param other The other set.
+     * @return True if the two sets intersect.
+     */
+    public boolean intersects(final EntitySet other) {
+        if (other.table != table)
+            return !Collections.disjoint(this, other);
+
+        final int len = Math.min(words.length, other.words.length);
+        for (int i = 0; i < len; ++i)
+            if ((words[i] & other.words[i]) != 0)
+                return true;
+
+        return false;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if (!(o instanceof Entity e))
+            return false;
+
+        final int id = table.idOf(e);
+        return id >= 0 && containsId(id);
+    }
+
+    @Override
+    public boolean add(final Entity e) {
+        return addId(table.intern(e));
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (!(o instanceof Entity e))
+            return false;
+
+        final int id = table.idOf(e);
+        if (id < 0 || !containsId(id))
+            return false;
+
+        words[id >>> 6] &= ~(1L << id);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends Entity> c) {
+        if (!(c instanceof EntitySet other) || other.table != table)
+            return super.addAll(c);
+
+        if (other.words.length > words.length)
+            words = Arrays.copyOf(words, other.words.length);
+
+        boolean changed = false;
+        for (int i = 0; i < other.words.length; ++i) {
+            final long old = words[i];
+            words[i] |= other.words[i];
+            changed |= old != words[i];
+        }
+
+        return changed;
+    }
+
+    @Override
+    public boolean containsAll(final Collection<?> c) {
+        if (!(c instanceof EntitySet other) || other.table != table)
+            return super.containsAll(c);
+
+        for (int i = 0; i < other.words.length; ++i) {
+            final long w = i < words.length ? words[i] : 0;
+            if ((w & other.words[i]) != other.words[i])
+                return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int size() {
+        int res = 0;
+
+        for (final long w : words)
+            res += Long.bitCount(w);
+
+        return res;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (final long w : words)
+            if (w != 0) return false;
+
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    @Override
+    public Iterator<Entity> iterator() {
+        return new Iterator<>() {
+            private int next = nextId(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Entity next() {
+                if (next < 0)
+                    throw new NoSuchElementException();
+
+                last = next;
+                next = nextId(next + 1);
+
+                return table.entityOf(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0)
+                    throw new IllegalStateException();
+
+                words[last >>> 6] &= ~(1L << last);
+                last = -1;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EntitySet other) || other.table != table) return super.equals(o);
+
+        final int len = Math.max(words.length, other.words.length);
+        for (int i = 0; i < len; ++i) {
+            final long a = i < words.length ? words[i] : 0;
+            final long b = i < other.words.length ? other.words[i] : 0;
+            if (a != b) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // It has to match the hash of any other set (i.e. the sum of the hashes of its entities)
+        int result = 0;
+
+        for (int id = nextId(0); id >= 0; id = nextId(id + 1))
+            result += table.entityOf(id).hashCode();
+
+        return result;
+    }
+}
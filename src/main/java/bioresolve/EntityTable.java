@@ -0,0 +1,136 @@
+package bioresolve;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The interned symbol table of a reaction system. Each entity is mapped to a dense integer id, which is the position of
+ * its bit inside an {@link EntitySet}.<br>
+ * The table is built once per reaction system from its entity set. Entities which only appear in the contexts (and thus
+ * are not known to the reaction system) are interned on demand the first time they are added to a set.
+ */
+public class EntityTable {
+    private final Map<Entity, Integer> ids;
+    private volatile Entity[] entities;
+    private int size;
+
+    /**
+     * @param entities The entities to intern. They are given ids following their lexicographical order, so that the
+     *                 iteration order of the sets built on this table does not depend on hashing.
+     */
+    public EntityTable(final Collection<Entity> entities) {
+        this(sorted(entities));
+    }
+
+    private EntityTable(final Entity[] ordered) {
+        this.ids = new ConcurrentHashMap<>(ordered.length * 2);
+        this.entities = new Entity[Math.max(ordered.length, 1)];
+
+        for (final Entity e : ordered)
+            append(e);
+    }
+
+    private static Entity[] sorted(final Collection<Entity> entities) {
+        final Entity[] res = entities.toArray(new Entity[0]);
+        Arrays.sort(res, Comparator.comparing(Entity::symbol));
+
+        return res;
+    }
+
+    /**
+     * Creates a table keeping the ids of a previously built one (e.g. a table read back from a {@link BinaryModel}).
+     * @param entities The distinct entities, in the order of their ids.
+     * @return The table.
+     */
+    public static EntityTable ofOrdered(final Entity[] entities) {
+        return new EntityTable(entities);
+    }
+
+    /**
+     * Returns the id of an entity.
+     * @param entity The entity.
+     * @return The id of the entity, or -1 if it has not been interned.
+     */
+    public int idOf(final Entity entity) {
+        final Integer id = ids.get(entity);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the id of an entity, assigning it a new one if it has not been interned yet.
+     * @param entity The entity.
+     * @return The id of the entity.
+     */
+    public int intern(final Entity entity) {
+        final Integer id = ids.get(entity);
+        if (id != null)
+            return id;
+
+        synchronized (this) {
+            final Integer existing = ids.get(entity);
+            if (existing != null)
+                return existing;
+
+            return append(entity);
+        }
+    }
+
+    /**
+     * Gives the next id to an entity which has not been interned yet.
+     * @param entity The entity.
+     * @return The id of the entity.
+     */
+    private int append(final Entity entity) {
+        if (size == entities.length)
+            entities = Arrays.copyOf(entities, size * 2);
+        entities[size] = entity;
+        ids.put(entity, size); // Published after the array slot, so that entityOf never sees a missing entity
+
+        return size++;
+    }
+
+    /**
+     * @param id The id of an interned entity.
+     * @return The entity having the given id.
+     */
+    public Entity entityOf(final int id) {
+        return entities[id];
+    }
+
+    /**
+     * @return The number of interned entities.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @return The number of 64-bit words needed to represent a set containing any of the interned entities.
+     */
+    public int wordCount() {
+        return (size() + 63) >>> 6;
+    }
+
+    /**
+     * @return A new empty set of entities backed by this table.
+     */
+    public EntitySet newSet() {
+        return new EntitySet(this);
+    }
+
+    /**
+     * Converts a collection of entities to a set backed by this table. If the collection is already such a set, it is
+     * returned as it is.
+     * @param entities The collection of entities.
+     * @return The set backed by this table.
+     */
+    public EntitySet setOf(final Collection<Entity> entities) {
+        if (entities instanceof EntitySet entitySet && entitySet.getTable() == this)
+            return entitySet;
+
+        final EntitySet res = new EntitySet(this);
+        res.addAll(entities);
+
+        return res;
+    }
+}
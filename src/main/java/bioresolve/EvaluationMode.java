@@ -0,0 +1,31 @@
+package bioresolve;
+
+/**
+ * The strategies available to a {@link ReactionSystem} for computing the results of its reactions.
+ */
+public enum EvaluationMode {
+    /**
+     * Each reaction checks its reactants and inhibitors entity by entity.
+     */
+    INTERPRETED,
+    /**
+     * The reactions are compiled into bitmasks and evaluated by a {@link ScalarReactionEvaluator}.
+     */
+    COMPILED,
+    /**
+     * The compiled reactions are evaluated in SIMD lanes by a {@link VectorReactionEvaluator}. If the Vector API is not
+     * available at runtime, it falls back to {@link #COMPILED}.
+     */
+    VECTOR,
+    /**
+     * Only the reactions whose rarest reactant is present are evaluated, through the inverted index of an
+     * {@link IndexedReactionEvaluator}. Best suited for large systems evaluated on small sets.
+     */
+    INDEXED,
+    /**
+     * The reactions keep counters which are updated only with the difference between consecutive sets, by an
+     * {@link IncrementalReactionEvaluator}. Best suited for long context sequences whose sets change little. Each
+     * manager keeps its own evaluator, thus the difference is taken between the consecutive steps of the manager.
+     */
+    INCREMENTAL
+}
@@ -0,0 +1,17 @@
+package bioresolve;
+
+/**
+ * The eviction policies available to a {@link StepCache}.
+ */
+public enum EvictionPolicy {
+    /**
+     * When full, the least recently used entry is evicted to make room for the new one.
+     */
+    LRU,
+    /**
+     * Like {@link #LRU}, but a new entry is admitted only if it has been requested more frequently than the entry it
+     * would evict, as estimated by a count-min sketch (in the style of W-TinyLFU). This keeps frequently computed steps
+     * in the cache even when many one-off steps are performed.
+     */
+    TINY_LFU
+}
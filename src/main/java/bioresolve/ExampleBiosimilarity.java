@@ -2,7 +2,6 @@ package bioresolve;
 
 import java.time.Duration;
 import java.util.List;
-import java.util.Set;
 
 public class ExampleBiosimilarity {
     public static void main(String[] args) {
@@ -12,13 +11,8 @@ public class ExampleBiosimilarity {
                 "([b2],[a2],[d]), " +
                 "([c],[a1],[d])";
 
-        Reaction.checkReactionStringConformity(reactionsString);
-
-        Set<Entity> S = Entity.extrapolateEntitiesFromReactionsString(reactionsString);
-
-        Set<Reaction> A = Reaction.parseReactions(reactionsString);
-
-        ReactionSystem RS = new ReactionSystem(S, A);
+        ReactionSystem RS = ReactionParser.parseReactionSystem(reactionsString);
+        RS.setStepCache(new StepCache(1024, EvictionPolicy.LRU)); // The choices keep reaching the same steps
 
         String environment = "x=({a1,b2}.{}.{a2,b1}.x + {a2,b1}.{}.{a1,b2}.x + {c}.nil)";
         String context = "x";
@@ -39,5 +33,6 @@ public class ExampleBiosimilarity {
 
         float t = (float) totalTime.toNanos() / 1000000000;
         System.out.println("Total time " + t + "s");
+        System.out.println(RS.getStepCache());
     }
 }
@@ -2,19 +2,12 @@ package bioresolve;
 
 import java.time.Duration;
 import java.util.List;
-import java.util.Set;
 
 public class ExampleDefault {
     public static void main(String[] args) {
         String reactionsString = "([a,b],[c],[b])";
 
-        Reaction.checkReactionStringConformity(reactionsString);
-
-        Set<Entity> S = Entity.extrapolateEntitiesFromReactionsString(reactionsString);
-
-        Set<Reaction> A = Reaction.parseReactions(reactionsString);
-
-        ReactionSystem RS = new ReactionSystem(S, A);
+        ReactionSystem RS = ReactionParser.parseReactionSystem(reactionsString);
 
         String environment = "";
         String context = "{a, b}.{a}.{a, c}.nil + {a, b}.{a}.{a}.nil";
@@ -67,13 +67,7 @@ public class ExampleHeatShock {
                 "([mfp],[hsp],[mfp]), " +
                 "([hspMfp],[void],[hsp,prot])";
 
-        Reaction.checkReactionStringConformity(reactionsString);
-
-        Set<Entity> S = Entity.extrapolateEntitiesFromReactionsString(reactionsString);
-
-        Set<Reaction> A = Reaction.parseReactions(reactionsString);
-
-        ReactionSystem RS = new ReactionSystem(S, A);
+        ReactionSystem RS = ReactionParser.parseReactionSystem(reactionsString);
 
         String environment = "exp1={hsf,prot,hse,nostress}.{nostress}.{nostress}.{nostress}.{nostress}.{nostress}.nil," +
                 "exp2={hse,prot,hspHsf,stress}.{stress}.{stress}.{stress}.{stress}.nil," +
@@ -45,13 +45,7 @@ public class ExampleLactose {
                 "([cAMP,cAP],[glucose],[cAMPCAP]), " +
                 "([lac,cAMPCAP],[iOP],[z,y,a])";
 
-        Reaction.checkReactionStringConformity(reactionsString);
-
-        Set<Entity> S = Entity.extrapolateEntitiesFromReactionsString(reactionsString);
-
-        Set<Reaction> A = Reaction.parseReactions(reactionsString);
-
-        ReactionSystem RS = new ReactionSystem(S, A);
+        ReactionSystem RS = ReactionParser.parseReactionSystem(reactionsString);
 
         String environment = "x = {lac,lacI,i,cya,cAMP,crp,cAP}.x , y = ({lactose}.y + {glucose}.y)";
         String context = "x, y";
@@ -0,0 +1,22 @@
+package bioresolve;
+
+/**
+ * The orders in which the {@link ManagersCoordinator} explores the states, when computing on a single thread.
+ */
+public enum ExplorationStrategy {
+    /**
+     * Breadth-first: all the managers advance by one step before any of them advances by another one, hence the states
+     * are reached through the shortest paths first.
+     */
+    BFS,
+    /**
+     * Depth-first, with an explicit stack: a manager keeps advancing until it stops, then the last manager spawned by a
+     * choice is resumed. Only the managers spawned along the current path are waiting, which keeps the frontier small.
+     */
+    DFS,
+    /**
+     * Depth-first, repeated with a doubling depth bound (starting from one step) until the exploration is no longer cut
+     * by the bound. The last exploration is complete.
+     */
+    ITERATIVE_DEEPENING
+}
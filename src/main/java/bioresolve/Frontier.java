@@ -0,0 +1,54 @@
+package bioresolve;
+
+import java.util.List;
+
+/**
+ * The managers waiting to advance while exploring the states. The order in which they are polled defines the
+ * {@link ExplorationStrategy exploration strategy}.
+ */
+public abstract class Frontier {
+    /**
+     * @param strategy The exploration strategy.
+     * @return An empty frontier polling the managers in the order of the given strategy.
+     */
+    public static Frontier of(final ExplorationStrategy strategy) {
+        return of(strategy, null, 0);
+    }
+
+    /**
+     * @param strategy The exploration strategy.
+     * @param spill The spill receiving the managers exceeding the memory, or null to keep all of them in memory.
+     * @param managersInMemory The maximum number of managers kept in memory, when spilling.
+     * @return An empty frontier polling the managers in the order of the given strategy.
+     */
+    public static Frontier of(final ExplorationStrategy strategy, final ManagerSpill spill, final int managersInMemory) {
+        return strategy == ExplorationStrategy.BFS
+                ? new BreadthFirstFrontier(spill, managersInMemory)
+                : new DepthFirstFrontier(spill, managersInMemory);
+    }
+
+    /**
+     * Adds a manager to the frontier.
+     * @param manager The manager.
+     */
+    public abstract void push(ProcessManager manager);
+
+    /**
+     * Removes the next manager to advance.
+     * @return The manager, or null if the frontier is empty.
+     */
+    public abstract ProcessManager poll();
+
+    /**
+     * Empties the frontier. The blocks spilled to disk are discarded without being read, their managers having been
+     * retired when they were written.
+     * @return The managers which were in memory.
+     */
+    public abstract List<ProcessManager> clear();
+
+    public abstract int size();
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,50 @@
+package bioresolve;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The formats in which the explored graph can be written.
+ */
+public enum GraphFormat {
+    /** A DOT graph, with numeric node ids. See {@link DotGraphSink}. */
+    DOT("dot"),
+    /** A compact binary edge list, with varint-encoded ids. See {@link BinaryEdgeListSink}. */
+    BINARY("bin"),
+    /** A GraphML document. See {@link GraphMLSink}. */
+    GRAPHML("graphml"),
+    /** A JSON object per line for each node and edge. See {@link JsonLinesSink}. */
+    JSONL("jsonl"),
+    /** A CSV table of the nodes and one of the edges. See {@link CsvSink}. */
+    CSV("csv");
+
+    private final String extension;
+
+    GraphFormat(final String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return The usual extension of the files, without the dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Creates a sink writing the graph in this format.
+     * @param file The output file.
+     * @param compress True to compress the output with gzip.
+     * @return The sink.
+     * @throws IOException If the file cannot be opened.
+     */
+    public GraphSink createSink(final Path file, final boolean compress) throws IOException {
+        return switch (this) {
+            case DOT -> new DotGraphSink(file, compress);
+            case BINARY -> new BinaryEdgeListSink(file, compress);
+            case GRAPHML -> new GraphMLSink(file, compress);
+            case JSONL -> new JsonLinesSink(file, compress);
+            case CSV -> new CsvSink(file, compress);
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package bioresolve;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Writes the graph as a GraphML document. Nodes carry their result and their contexts, and edges their label, as data
+ * attributes.
+ */
+public class GraphMLSink extends GraphSink {
+    private final Writer out;
+
+    /**
+     * Creates the file (or truncates it) and writes the header of the document.
+     * @param file The output file.
+     * @param compress True to compress the file with gzip.
+     * @throws IOException If the file cannot be opened.
+     */
+    public GraphMLSink(final Path file, final boolean compress) throws IOException {
+        this.out = openWriter(file, compress);
+        out.write("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <graphml xmlns="http://graphml.graphdrawing.org/xmlns">
+                  <key id="result" for="node" attr.name="result" attr.type="string"/>
+                  <key id="context" for="node" attr.name="context" attr.type="string"/>
+                  <key id="label" for="edge" attr.name="label" attr.type="string"/>
+                  <graph id="G" edgedefault="directed">
+                """);
+    }
+
+    @Override
+    public void node(final int id, final Set<Entity> result, final String context) {
+        try {
+            out.write("    <node id=\"n" + id + "\"><data key=\"result\">" + escape(Entity.stringifyEntitiesCollection(result))
+                    + "</data><data key=\"context\">" + escape(context) + "</data></node>\n");
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void edge(final int from, final int to, final int label, final Set<Entity> entities) {
+        try {
+            out.write("    <edge source=\"n" + from + "\" target=\"n" + to + "\"><data key=\"label\">"
+                    + escape(Entity.stringifyEntitiesCollection(entities)) + "</data></edge>\n");
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write("  </graph>\n</graphml>\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String escape(final String s) {
+        final StringBuilder res = new StringBuilder(s.length());
+
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '<' -> res.append("&lt;");
+                case '>' -> res.append("&gt;");
+                case '&' -> res.append("&amp;");
+                case '"' -> res.append("&quot;");
+                default -> res.append(c);
+            }
+        }
+
+        return res.toString();
+    }
+}
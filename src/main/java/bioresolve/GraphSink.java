@@ -0,0 +1,82 @@
+package bioresolve;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Receives the graph while it is being explored: each node and each arc label is passed once, with a dense id, the first
+ * time it is reached, and each distinct edge is passed once, referring to its nodes and its label by id.<br>
+ * The implementations write the graph in a given {@link GraphFormat format}; the calls are serialized by the
+ * {@link OffHeapGraph graph}, hence they need not be thread-safe.
+ */
+public abstract class GraphSink implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Receives a new node.
+     * @param id The id of the node.
+     * @param result The result of the node.
+     * @param context The contexts of the processes of the node.
+     * @throws UncheckedIOException If the node cannot be written.
+     */
+    public abstract void node(int id, Set<Entity> result, String context) throws UncheckedIOException;
+
+    /**
+     * Receives a new arc label, before the first edge having it. By default, labels are not written separately.
+     * @param id The id of the label.
+     * @param entities The entities of the label.
+     * @throws UncheckedIOException If the label cannot be written.
+     */
+    public void label(final int id, final Set<Entity> entities) throws UncheckedIOException {}
+
+    /**
+     * Receives a new edge between two nodes which have already been received.
+     * @param from The id of the source node.
+     * @param to The id of the target node.
+     * @param label The id of the label.
+     * @param entities The entities of the label.
+     * @throws UncheckedIOException If the edge cannot be written.
+     */
+    public abstract void edge(int from, int to, int label, Set<Entity> entities) throws UncheckedIOException;
+
+    /**
+     * Ends the graph and closes the underlying files.
+     * @throws IOException If the files cannot be written.
+     */
+    @Override
+    public abstract void close() throws IOException;
+
+    /**
+     * Opens a buffered stream creating (or truncating) a file.
+     * @param file The file.
+     * @param compress True to compress the stream with gzip.
+     * @return The stream.
+     * @throws IOException If the file cannot be opened.
+     */
+    protected static OutputStream open(final Path file, final boolean compress) throws IOException {
+        final OutputStream out = Files.newOutputStream(file);
+
+        return compress
+                ? new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE)
+                : new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a buffered UTF-8 writer creating (or truncating) a file.
+     * @param file The file.
+     * @param compress True to compress the stream with gzip.
+     * @return The writer.
+     * @throws IOException If the file cannot be opened.
+     */
+    protected static Writer openWriter(final Path file, final boolean compress) throws IOException {
+        return new OutputStreamWriter(open(file, compress), StandardCharsets.UTF_8);
+    }
+
+    protected static UncheckedIOException failure(final IOException e) {
+        return new UncheckedIOException("Could not write the graph to file.", e);
+    }
+}
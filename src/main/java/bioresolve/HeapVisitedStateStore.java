@@ -0,0 +1,50 @@
+package bioresolve;
+
+/**
+ * A striped visited state store keeping its slots in arrays on the heap.
+ */
+public class HeapVisitedStateStore extends StripedVisitedStateStore {
+    /**
+     * @param expectedSize The number of states expected to be stored. The store grows past it if needed.
+     * @throws IllegalArgumentException If the expected size is negative.
+     */
+    public HeapVisitedStateStore(final long expectedSize) throws IllegalArgumentException {
+        super(expectedSize);
+    }
+
+    @Override
+    protected Stripe newStripe(final int capacity) {
+        return new ArrayStripe(capacity);
+    }
+
+    private static final class ArrayStripe extends Stripe {
+        private final long[] keys;
+        private final long[] values;
+
+        private ArrayStripe(final int capacity) {
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+        }
+
+        @Override
+        protected int capacity() {
+            return keys.length;
+        }
+
+        @Override
+        protected long key(final int slot) {
+            return keys[slot];
+        }
+
+        @Override
+        protected long value(final int slot) {
+            return values[slot];
+        }
+
+        @Override
+        protected void set(final int slot, final long key, final long value) {
+            keys[slot] = key;
+            values[slot] = value;
+        }
+    }
+}
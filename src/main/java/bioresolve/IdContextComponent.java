@@ -15,6 +15,7 @@ public class IdContextComponent extends ContextComponent {
 
     /**
      * @param id The id of the variable.
+     * @see ContextFactory#id(String)
      */
     public IdContextComponent(final String id) {
         this.contextId = id;
@@ -46,6 +47,7 @@ public class IdContextComponent extends ContextComponent {
         if (this.getClass() != o.getClass()) return false;
 
         IdContextComponent other = (IdContextComponent) o;
+        if (bothCanonical(other)) return false;
         return contextId.equals(other.contextId);
     }
 
@@ -0,0 +1,170 @@
+package bioresolve;
+
+/**
+ * Evaluates the reactions incrementally, updating its state only with the entities added to and removed from the set
+ * since the previous evaluation.<br>
+ * Each reaction keeps the number of its missing reactants and of its present inhibitors, being enabled when both are
+ * zero; each entity keeps the number of enabled reactions producing it (i.e. the products are a multiset). A change of
+ * an entity only touches the reactions in which it appears, so consecutive sets differing in a handful of entities are
+ * evaluated in time proportional to that difference.<br>
+ * Since the state refers to the last evaluated set, an instance must only be used by a single sequence of computations
+ * at a time. The {@link ProcessManager managers} get their own {@link ReactionSystem#newSequenceEvaluator() evaluator},
+ * so that the difference is taken between their consecutive steps even when the steps of many managers are interleaved
+ * on the same thread.
+ */
+public class IncrementalReactionEvaluator extends ReactionEvaluator {
+    // For each entity e, the reactions having it as a reactant are asReactant[reactantOffsets[e] .. reactantOffsets[e + 1]]
+    private final int[] reactantOffsets;
+    private final int[] asReactant;
+    private final int[] inhibitorOffsets;
+    private final int[] asInhibitor;
+    // The products of the reaction r are productIds[productOffsets[r] .. productOffsets[r + 1]]
+    private final int[] productOffsets;
+    private final int[] productIds;
+
+    private final int[] missingReactants;
+    private final int[] presentInhibitors;
+    private final int[] producers; // Number of enabled reactions producing each entity
+
+    private final long[] previous;
+    private final long[] current;
+    private final long[] result;
+
+    /**
+     * @param masks The compiled reactions.
+     */
+    public IncrementalReactionEvaluator(final ReactionMasks masks) {
+        super(masks);
+
+        final int n = masks.size();
+        final int ids = masks.words << 6;
+
+        this.reactantOffsets = new int[ids + 1];
+        this.asReactant = invert(masks.reactants, reactantOffsets);
+        this.inhibitorOffsets = new int[ids + 1];
+        this.asInhibitor = invert(masks.inhibitors, inhibitorOffsets);
+
+        this.productOffsets = new int[n + 1];
+        for (int r = 0; r < n; ++r)
+            productOffsets[r + 1] = productOffsets[r] + countBits(masks.products, r);
+
+        this.productIds = new int[productOffsets[n]];
+        for (int r = 0, i = 0; r < n; ++r)
+            for (int k = 0; k < masks.words; ++k)
+                for (long w = masks.products[r * masks.words + k]; w != 0; w &= w - 1)
+                    productIds[i++] = (k << 6) + Long.numberOfTrailingZeros(w);
+
+        this.missingReactants = new int[n];
+        for (int r = 0; r < n; ++r)
+            missingReactants[r] = countBits(masks.reactants, r); // The previous set is initially empty
+        this.presentInhibitors = new int[n];
+        this.producers = new int[ids];
+
+        this.previous = new long[masks.words];
+        this.current = new long[masks.words];
+        this.result = new long[masks.words];
+    }
+
+    /**
+     * Builds the inverted index of a mask array, i.e. for each entity the list of reactions whose mask contains it.
+     * @param mask The reaction masks.
+     * @param offsets The array to fill with the offsets of each entity's list.
+     * @return The concatenated lists.
+     */
+    private int[] invert(final long[] mask, final int[] offsets) {
+        final int n = masks.size();
+        final int words = masks.words;
+
+        for (int r = 0; r < n; ++r)
+            for (int k = 0; k < words; ++k)
+                for (long w = mask[r * words + k]; w != 0; w &= w - 1)
+                    ++offsets[(k << 6) + Long.numberOfTrailingZeros(w) + 1];
+
+        for (int id = 0; id < offsets.length - 1; ++id)
+            offsets[id + 1] += offsets[id];
+
+        final int[] res = new int[offsets[offsets.length - 1]];
+        final int[] fill = offsets.clone();
+
+        for (int r = 0; r < n; ++r)
+            for (int k = 0; k < words; ++k)
+                for (long w = mask[r * words + k]; w != 0; w &= w - 1)
+                    res[fill[(k << 6) + Long.numberOfTrailingZeros(w)]++] = r;
+
+        return res;
+    }
+
+    private int countBits(final long[] mask, final int r) {
+        int res = 0;
+
+        for (int k = 0; k < masks.words; ++k)
+            res += Long.bitCount(mask[r * masks.words + k]);
+
+        return res;
+    }
+
+    @Override
+    public EntitySet computeResults(final EntitySet wSet) {
+        masks.load(wSet, current);
+
+        for (int k = 0; k < current.length; ++k) {
+            for (long added = current[k] & ~previous[k]; added != 0; added &= added - 1)
+                entityChanged((k << 6) + Long.numberOfTrailingZeros(added), 1);
+            for (long removed = previous[k] & ~current[k]; removed != 0; removed &= removed - 1)
+                entityChanged((k << 6) + Long.numberOfTrailingZeros(removed), -1);
+
+            previous[k] = current[k];
+        }
+
+        if (BioResolve.OUT)
+            for (int r = 0; r < masks.size(); ++r)
+                if (isEnabled(r)) reactionActivated(r);
+
+        return masks.toSet(result);
+    }
+
+    /**
+     * Updates the counters of the reactions in which an entity appears.
+     * @param id The id of the entity.
+     * @param delta 1 if the entity has been added, -1 if it has been removed.
+     */
+    private void entityChanged(final int id, final int delta) {
+        for (int i = reactantOffsets[id]; i < reactantOffsets[id + 1]; ++i) {
+            final int r = asReactant[i];
+            final boolean wasEnabled = isEnabled(r);
+            missingReactants[r] -= delta;
+            reactionUpdated(r, wasEnabled);
+        }
+
+        for (int i = inhibitorOffsets[id]; i < inhibitorOffsets[id + 1]; ++i) {
+            final int r = asInhibitor[i];
+            final boolean wasEnabled = isEnabled(r);
+            presentInhibitors[r] += delta;
+            reactionUpdated(r, wasEnabled);
+        }
+    }
+
+    /**
+     * Adds or removes the products of a reaction from the multiset if its enabling has changed.
+     * @param r The index of the reaction.
+     * @param wasEnabled Whether the reaction was enabled before its counters were updated.
+     */
+    private void reactionUpdated(final int r, final boolean wasEnabled) {
+        final boolean enabled = isEnabled(r);
+        if (enabled == wasEnabled)
+            return;
+
+        for (int i = productOffsets[r]; i < productOffsets[r + 1]; ++i) {
+            final int id = productIds[i];
+
+            if (enabled && producers[id]++ == 0)
+                result[id >>> 6] |= 1L << id;
+            else if (!enabled && --producers[id] == 0)
+                result[id >>> 6] &= ~(1L << id);
+        }
+    }
+
+    private boolean isEnabled(final int r) {
+        return missingReactants[r] == 0 && presentInhibitors[r] == 0;
+    }
+}
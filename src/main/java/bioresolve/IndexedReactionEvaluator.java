@@ -0,0 +1,97 @@
+package bioresolve;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates only the reactions which can be enabled by the current set, through an inverted index from the entities to
+ * the reactions having them as reactants.<br>
+ * Each reaction is indexed under a single trigger, its <i>rarest</i> reactant (the one appearing as a reactant in the
+ * fewest reactions): since a reaction needs all of its reactants, it can only be enabled if its trigger is present.
+ * A step then visits each candidate reaction exactly once, and its cost depends on the entities present rather than on
+ * the size of the whole system.
+ */
+public class IndexedReactionEvaluator extends ReactionEvaluator {
+    private final int[] offsets; // The reactions triggered by the entity e are triggered[offsets[e] .. offsets[e + 1]]
+    private final int[] triggered;
+
+    private final long[] current;
+    private final long[] accumulator;
+
+    /**
+     * @param masks The compiled reactions.
+     */
+    public IndexedReactionEvaluator(final ReactionMasks masks) {
+        super(masks);
+
+        final int n = masks.size();
+        final int ids = masks.words << 6;
+
+        final int[] occurrences = new int[ids]; // Number of reactions having each entity as a reactant
+        for (int r = 0; r < n; ++r)
+            for (int id = nextReactant(r, 0); id >= 0; id = nextReactant(r, id + 1))
+                ++occurrences[id];
+
+        final int[] triggers = new int[n];
+        this.offsets = new int[ids + 1];
+
+        for (int r = 0; r < n; ++r) {
+            int rarest = -1;
+            for (int id = nextReactant(r, 0); id >= 0; id = nextReactant(r, id + 1))
+                if (rarest < 0 || occurrences[id] < occurrences[rarest])
+                    rarest = id;
+
+            triggers[r] = rarest;
+            ++offsets[rarest + 1];
+        }
+
+        for (int id = 0; id < ids; ++id)
+            offsets[id + 1] += offsets[id];
+
+        this.triggered = new int[n];
+        final int[] fill = Arrays.copyOf(offsets, ids);
+        for (int r = 0; r < n; ++r)
+            triggered[fill[triggers[r]]++] = r;
+
+        this.current = new long[masks.words];
+        this.accumulator = new long[masks.words];
+    }
+
+    /**
+     * Returns the first reactant of a reaction whose id is greater or equal to the given one.
+     * @param r The index of the reaction.
+     * @param from The id from which to start searching.
+     * @return The id of the reactant, or -1 if there is none.
+     */
+    private int nextReactant(final int r, final int from) {
+        final int base = r * masks.words;
+
+        for (int k = from >>> 6; k < masks.words; ++k) {
+            final long word = masks.reactants[base + k] & (k == from >>> 6 ? -1L << from : -1L);
+            if (word != 0)
+                return (k << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        return -1;
+    }
+
+    @Override
+    public EntitySet computeResults(final EntitySet wSet) {
+        masks.load(wSet, current);
+        Arrays.fill(accumulator, 0);
+
+        for (int k = 0; k < current.length; ++k)
+            for (long word = current[k]; word != 0; word &= word - 1) {
+                final int id = (k << 6) + Long.numberOfTrailingZeros(word);
+
+                for (int i = offsets[id]; i < offsets[id + 1]; ++i) {
+                    final int r = triggered[i];
+                    if (masks.isEnabled(current, r)) {
+                        masks.addProducts(r, accumulator);
+                        reactionActivated(r);
+                    }
+                }
+            }
+
+        return masks.toSet(accumulator);
+    }
+}
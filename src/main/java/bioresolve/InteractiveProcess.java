@@ -1,5 +1,8 @@
 package bioresolve;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -7,18 +10,20 @@ import java.util.Set;
 
 /**
  * This class is in charge of advancing the computation process.<br>
- * It performs the substitution of variables, the assignment of choices (spawning other {@link ProcessManager managers)},
- * and the computation of the current set, that is the union of the current component's context and the result of the
- * previous computations performed by its manager.
+ * It steps through the {@link ContextAutomaton automaton} of its environment, which performs the substitution of
+ * variables, and carries out the assignment of choices (spawning other {@link ProcessManager managers)} and the
+ * computation of the current set, that is the union of the current component's context and the result of the previous
+ * computations performed by its manager.
  * @author caba
  */
 public class InteractiveProcess {
     private final Environment environment;
-    private Context contextSequence; // C set
-    private int contextSequenceIndex; // Index i of C
+    private ContextAutomaton.State state; // C set, starting from Ci
+    private ContextAutomaton.State previousState; // C set before the last advancement
+    private ContextAutomaton.Step lastStep; // Ci-1
     
-    private final List<Set<Entity>> resultSequence; // D set
-    private int resultSequenceIndex; // Index i of D
+    private Set<Entity> currentResult; // Di
+    private int steps; // Index i of Di
 
     public boolean hasEnded;
 
@@ -54,11 +59,10 @@ public class InteractiveProcess {
      */
     public InteractiveProcess(final int managerId, final Environment env, final Context contextSequence) {
         this.environment = env;
-        this.contextSequence = contextSequence;
+        this.state = env.getAutomaton().initialState(contextSequence);
         this.initialContext = contextSequence;
         
-        this.resultSequence = new ArrayList<>(contextSequence.getContext().size() + 1);
-        this.resultSequence.add(new HashSet<>()); // D0 is empty
+        this.currentResult = new HashSet<>(); // D0 is empty
 
         this.managerId = managerId;
         this.initiallySubstitutedFrom = "";
@@ -70,20 +74,18 @@ public class InteractiveProcess {
     private InteractiveProcess(
             final int managerId,
             final Environment env,
-            final Context contextSequence,
-            final int contextSequenceIndex,
-            final List<Set<Entity>> resultSequence,
-            final int resultSequenceIndex,
+            final ContextAutomaton.State state,
+            final Set<Entity> currentResult,
+            final int steps,
             final String initiallySubstitutedFrom,
             final String stemsFrom,
             final Context initialContext
     ) {
         this.managerId = managerId;
         this.environment = env;
-        this.contextSequence = contextSequence;
-        this.contextSequenceIndex = contextSequenceIndex;
-        this.resultSequence = resultSequence;
-        this.resultSequenceIndex = resultSequenceIndex;
+        this.state = state;
+        this.currentResult = currentResult;
+        this.steps = steps;
         this.initiallySubstitutedFrom = initiallySubstitutedFrom;
         this.stemsFrom = stemsFrom;
         this.initialContext = initialContext;
@@ -95,39 +97,32 @@ public class InteractiveProcess {
      * @param parallelResult
      */
     public void pushResult(final Set<Entity> parallelResult) {
-        resultSequence.add(parallelResult); // This is Di+1 = Ci U Di
-        ++resultSequenceIndex;
+        currentResult = parallelResult; // This is Di+1 = Ci U Di
+        ++steps;
 
         dirty = false;
     }
 
     /**
-     * Computes the process' next result, possibly substituting variables (if C<sub>i</sub> is an environment variable or
-     * if it is a repeated context component) and creating new processes (if C<sub>i</sub> is a choice component).
+     * Computes the process' next result, possibly creating new processes (if C<sub>i</sub> is a choice component).
      * @return The next result D<sub>i</sub>.
      */
     public Set<Entity> advanceStateSequence() {
-        final List<ContextComponent> contextComponents = contextSequence.getContext();
-        if (contextComponents.isEmpty() || contextSequenceIndex >= contextComponents.size())
-            return null;
+        ContextAutomaton.Step step = state.step();
 
-        final Set<Entity> wSet;
-        
-        final ContextComponent contextI = contextComponents.get(contextSequenceIndex);
-        
-        if (contextI instanceof ChoiceContextComponent choiceContextComponent) {
-            final List<Context> choices = choiceContextComponent.getChoices();
+        while (step.getKind() == ContextAutomaton.StepKind.CHOICE) {
+            applySubstitutions(step);
 
+            final List<ContextAutomaton.State> branches = step.getBranches();
             final ManagersCoordinator coordinator = ManagersCoordinator.getInstance();
 
-            for (int i = 1; i < choices.size(); ++i) { // Creates a new manager containing the new process for each choice
+            for (int i = 1; i < branches.size(); ++i) { // Creates a new manager containing the new process for each choice
                 final InteractiveProcess choiceProcess = new InteractiveProcess(
-                        coordinator.getNewManagerId(),
+                        -1, // The id is assigned when spawning the manager
                         environment,
-                        choices.get(i),
-                        0,
-                        new ArrayList<>(resultSequence),
-                        resultSequenceIndex,
+                        branches.get(i),
+                        currentResult,
+                        steps,
                         initiallySubstitutedFrom,
                         stemsFrom,
                         initialContext
@@ -135,44 +130,50 @@ public class InteractiveProcess {
                 coordinator.cloneManagerSubstitutingProcess(managerId, this, choiceProcess);
             }
 
-            contextSequence = choices.get(0); // This process takes the first choice
-            contextSequenceIndex = 0;
-            
-            return advanceStateSequence(); // Recursively destructure choices
-        } else if (contextI instanceof IdContextComponent idContextComponent) {
-            if (initiallySubstitutedFrom.isEmpty()) initiallySubstitutedFrom = idContextComponent.getId();
-            final Context refContext = environment.getEnv().get(idContextComponent.getId()); // This is checked in the constructor
-
-            stemsFrom = idContextComponent.getId();
-
-            contextSequence = contextSequence.getSubstitutedContext(contextSequenceIndex, refContext);
-            contextSequenceIndex = 0;
-            
-            return advanceStateSequence();
-        } else if (contextI instanceof RepeatedContextComponent repeatedContextComponent) {
-            final Context translatedContext = repeatedContextComponent.getRepeatedSequence();
-            
-            contextSequence.getSubstitutedContext(resultSequenceIndex, translatedContext);
-            
-            return advanceStateSequence();
-        } else if (contextI instanceof EntitiesContextComponent entitiesContextComponent) {
-            final List<Entity> contextEntities = entitiesContextComponent.getEntities();
-            
-            wSet = new HashSet<>() { { addAll(contextEntities); addAll(resultSequence.get(resultSequenceIndex)); } };
-
-            ++contextSequenceIndex;
-        } else { // NilContextComponent
-            wSet = resultSequence.get(resultSequenceIndex);
-
-            ++contextSequenceIndex;
+            state = branches.get(0); // This process takes the first choice
+            step = state.step();
+        }
+
+        if (step.getKind() == ContextAutomaton.StepKind.END)
+            return null;
+
+        applySubstitutions(step);
+
+        final Set<Entity> wSet;
+        if (step.getKind() == ContextAutomaton.StepKind.ENTITIES) {
+            if (currentResult instanceof EntitySet entitySet) {
+                wSet = new EntitySet(entitySet);
+                wSet.addAll(step.getLabel(entitySet.getTable()));
+            } else {
+                wSet = new HashSet<>(currentResult);
+                wSet.addAll(step.getEntities());
+            }
+        } else { // NIL
+            wSet = currentResult;
 
             hasEnded = true;
         }
 
+        lastStep = step;
+        previousState = state;
+        state = step.getNext();
+
         dirty = true;
         return wSet;
     }
 
+    /**
+     * Updates the variables from which the process stems with those substituted to reach the given step.
+     * @param step The step.
+     */
+    private void applySubstitutions(final ContextAutomaton.Step step) {
+        if (step.getFirstSubstitution() == null)
+            return;
+
+        if (initiallySubstitutedFrom.isEmpty()) initiallySubstitutedFrom = step.getFirstSubstitution();
+        stemsFrom = step.getLastSubstitution();
+    }
+
     /**
      * Performs a (quasi-)deep copy of the class as it is before starting the computation of the current result of the
      * sequence. This means that, in a situation in which a parallel composition of processes is present, if the instance
@@ -182,16 +183,15 @@ public class InteractiveProcess {
      * @return A new cloned process.
      */
     public InteractiveProcess clone(final int callerManagerId) {
-        // Decrement the context sequence's index if it is dirty (it has advanced)
-        final int contextSequenceIndex = dirty ? this.contextSequenceIndex - 1 : this.contextSequenceIndex;
+        // Go back to the previous state if it is dirty (it has advanced)
+        final ContextAutomaton.State state = dirty ? previousState : this.state;
 
         return new InteractiveProcess(
                 callerManagerId,
                 environment,
-                contextSequence,
-                contextSequenceIndex,
-                new ArrayList<>(resultSequence),
-                resultSequenceIndex,
+                state,
+                currentResult,
+                steps,
                 initiallySubstitutedFrom,
                 stemsFrom,
                 initialContext
@@ -202,11 +202,22 @@ public class InteractiveProcess {
         return environment;
     }
 
-    public Context getContextSequence() {
-        return contextSequence;
+    public ContextSequence getContextSequence() {
+        return state.getSequence();
     }
 
-    public Integer getContextSequenceIndex() { return contextSequenceIndex; }
+    public ContextAutomaton.State getState() {
+        return state;
+    }
+
+    /**
+     * Checks whether the last computed context was the first component of the context it belongs to, that is if the
+     * process had just started or substituted a variable (or taken a choice) before computing it.
+     * @return True if the last computed context started its context.
+     */
+    public boolean lastContextStartedContext() {
+        return lastStep != null && lastStep.startsContext();
+    }
 
     /**
      * Returns the string of the last computed context.<br>
@@ -214,14 +225,10 @@ public class InteractiveProcess {
      * @return The string of the last computed context.
      */
     public String getLastContextAsString() {
-        final ContextComponent contextI = contextSequence.getContext().get(contextSequenceIndex - 1);
-
-        if (contextI instanceof EntitiesContextComponent entitiesContextComponent) {
-            final List<Entity> contextEntities = entitiesContextComponent.getEntities();
-            return Entity.stringifyEntitiesCollection(contextEntities);
-        }
+        if (lastStep == null)
+            return "";
 
-        return "";
+        return Entity.stringifyEntitiesCollection(lastStep.getEntities());
     }
 
     /**
@@ -229,13 +236,8 @@ public class InteractiveProcess {
      * @return
      */
     public List<Entity> getLastContext() {
-        final ContextComponent contextI = contextSequence.getContext().get(Math.max(contextSequenceIndex - 1, 0));
-
-        // The only component having entities inside is EntitiesContextComponent
-        if (contextI instanceof EntitiesContextComponent entitiesContextComponent)
-            return entitiesContextComponent.getEntities();
-
-        return new ArrayList<>();
+        // The only steps having entities inside are the ENTITIES ones
+        return lastStep == null ? new ArrayList<>() : lastStep.getEntities();
     }
 
     public Context getInitialContext() {
@@ -247,23 +249,18 @@ public class InteractiveProcess {
      * @return The string representation of the remaining components.
      */
     public String getRemainingContextAsString() {
-        final StringBuilder s = new StringBuilder();
-
-        final List<ContextComponent> contextComponents = contextSequence.getContext();
-
-        for (int i = contextSequenceIndex; i < contextComponents.size(); ++i)
-            s.append(contextComponents.get(i))
-                .append(i < contextComponents.size() - 1 ? "." : "");
-
-        return s.toString();
+        return state.toString();
     }
 
     public Set<Entity> getCurrentResult() {
-        return resultSequence.get(resultSequenceIndex);
+        return currentResult;
     }
 
-    public List<Set<Entity>> getResultSequence() {
-        return resultSequence;
+    /**
+     * @return The number of results computed so far, i.e. the depth of the process in the explored graph.
+     */
+    public int getSteps() {
+        return steps;
     }
 
     public void setManagerId(int managerId) {
@@ -274,16 +271,102 @@ public class InteractiveProcess {
         return stemsFrom;
     }
 
+    /**
+     * Encodes the position of the process in the automaton of its environment, together with what determines its
+     * following steps besides its current result, into two longs: the id of its state and of the variable from which it
+     * stems, and, once it has reached the end of its context sequence, the state from which it took its last step (which
+     * keeps being reported) and whether it has reached <i>nil</i>.
+     * @param key The array in which the position is written.
+     * @param offset The index of the first long to write.
+     */
+    void encodePosition(final long[] key, final int offset) {
+        final int stemsFromId = stemsFrom == null ? -1 : environment.getAutomaton().variableId(stemsFrom);
+        final boolean atEnd = state.step().getKind() == ContextAutomaton.StepKind.END;
+        final int lastStateId = atEnd && previousState != null ? previousState.getId() : -1;
+
+        key[offset] = (long) state.getId() << 32 | stemsFromId & 0xFFFFFFFFL;
+        key[offset + 1] = (long) lastStateId << 1 | (hasEnded ? 1 : 0);
+    }
+
+    /**
+     * Writes the process, as it is between two steps of its manager, to a spill file.
+     * @param out The output.
+     * @param block The block of the spill, which numbers the environments, the initial contexts and the states.
+     * @throws IOException If the process cannot be written.
+     */
+    void write(final DataOutput out, final ManagerSpill.Block block) throws IOException {
+        final EntitySet result = currentResult instanceof EntitySet entitySet
+                ? entitySet
+                : ManagersCoordinator.getRS().getEntityTable().setOf(currentResult);
+        final long[] words = result.words();
+
+        out.writeInt(block.indexOf(environment));
+        out.writeInt(block.indexOf(initialContext));
+        out.writeInt(block.stateIndex(state));
+        out.writeInt(previousState == null ? -1 : block.stateIndex(previousState));
+        out.writeInt(steps);
+        out.writeBoolean(hasEnded);
+        out.writeUTF(initiallySubstitutedFrom);
+        out.writeBoolean(stemsFrom != null);
+        if (stemsFrom != null) out.writeUTF(stemsFrom);
+
+        out.writeInt(words.length);
+        for (final long w : words)
+            out.writeLong(w);
+    }
+
+    /**
+     * Reads a process written by {@link #write(DataOutput, ManagerSpill.Block)}.
+     * @param in The input.
+     * @param block The block of the spill which has written the process.
+     * @param managerId The unique id of the manager of the process.
+     * @return The process.
+     * @throws IOException If the process cannot be read.
+     */
+    static InteractiveProcess read(final DataInput in, final ManagerSpill.Block block, final int managerId) throws IOException {
+        final Environment env = (Environment) block.objectAt(in.readInt());
+        final Context initialContext = (Context) block.objectAt(in.readInt());
+        final ContextAutomaton.State state = block.stateAt(in.readInt());
+        final int previousStateId = in.readInt();
+        final int steps = in.readInt();
+        final boolean hasEnded = in.readBoolean();
+        final String initiallySubstitutedFrom = in.readUTF();
+        final String stemsFrom = in.readBoolean() ? in.readUTF() : null;
+
+        final long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; ++i)
+            words[i] = in.readLong();
+
+        final InteractiveProcess p = new InteractiveProcess(
+                managerId,
+                env,
+                state,
+                new EntitySet(ManagersCoordinator.getRS().getEntityTable(), words),
+                steps,
+                initiallySubstitutedFrom,
+                stemsFrom,
+                initialContext
+        );
+
+        if (previousStateId >= 0) {
+            p.previousState = block.stateAt(previousStateId);
+            p.lastStep = p.previousState.step();
+        }
+        p.hasEnded = hasEnded;
+
+        return p;
+    }
+
     @Override
     public String toString() {
-        return contextSequence.toString();
+        return state.toString();
     }
 
     @Override
     public int hashCode() {
         int result = 17;
 
-        result = result * 37 + contextSequence.hashCode();
+        result = result * 37 + state.hashCode();
 
         return result;
     }
@@ -0,0 +1,72 @@
+package bioresolve;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Writes the graph as JSON Lines: a JSON object per line for each node, e.g.
+ * <i>{"type":"node","id":0,"result":["a","b"],"context":" | x"}</i>, and for each edge, e.g.
+ * <i>{"type":"edge","from":0,"to":1,"label":["a"]}</i>.
+ */
+public class JsonLinesSink extends GraphSink {
+    private final Writer out;
+
+    /**
+     * Creates the file (or truncates it).
+     * @param file The output file.
+     * @param compress True to compress the file with gzip.
+     * @throws IOException If the file cannot be opened.
+     */
+    public JsonLinesSink(final Path file, final boolean compress) throws IOException {
+        this.out = openWriter(file, compress);
+    }
+
+    @Override
+    public void node(final int id, final Set<Entity> result, final String context) {
+        try {
+            out.write("{\"type\":\"node\",\"id\":" + id + ",\"result\":" + array(result) + ",\"context\":" + string(context) + "}\n");
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void edge(final int from, final int to, final int label, final Set<Entity> entities) {
+        try {
+            out.write("{\"type\":\"edge\",\"from\":" + from + ",\"to\":" + to + ",\"label\":" + array(entities) + "}\n");
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private static String array(final Set<Entity> entities) {
+        final StringBuilder res = new StringBuilder("[");
+
+        for (final Entity e : entities) {
+            if (res.length() > 1) res.append(",");
+            res.append(string(e.symbol()));
+        }
+
+        return res.append("]").toString();
+    }
+
+    private static String string(final String s) {
+        final StringBuilder res = new StringBuilder(s.length() + 2).append('"');
+
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') res.append('\\').append(c);
+            else if (c < 0x20) res.append(String.format("\\u%04x", (int) c));
+            else res.append(c);
+        }
+
+        return res.append('"').toString();
+    }
+}
@@ -9,7 +9,6 @@ import java.awt.*;
 import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
 
 public class MainFrame extends JFrame {
     private JTextArea reactionsTextArea;
@@ -43,13 +42,7 @@ public class MainFrame extends JFrame {
 
                 String reactionsString = reactionsTextArea.getText();
 
-                Reaction.checkReactionStringConformity(reactionsString);
-
-                Set<Entity> S = Entity.extrapolateEntitiesFromReactionsString(reactionsString);
-
-                Set<Reaction> A = Reaction.parseReactions(reactionsString);
-
-                ReactionSystem RS = new ReactionSystem(S, A);
+                ReactionSystem RS = ReactionParser.parseReactionSystem(reactionsString);
 
                 String environment = environmentTextArea.getText();
                 String context = contextTextArea.getText();
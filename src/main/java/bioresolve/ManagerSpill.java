@@ -0,0 +1,219 @@
+package bioresolve;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Moves blocks of waiting managers from a {@link Frontier} to temporary files and back, so that frontiers larger than the
+ * memory can be explored.<br>
+ * A manager is written as its id followed by its processes, each one referring to its environment and its initial
+ * context by their index in the tables of the spill (they are shared by many processes and never written). The states
+ * of the {@link ContextAutomaton automata} at which the processes are refer to a table of the block, which is kept in
+ * memory until the block is read: since the automata only weakly hold their states, this keeps the program points of the
+ * spilled processes (and their ids) alive. Each block is read once, or discarded unread, after which its file is deleted.
+ */
+public class ManagerSpill {
+    private static final String FILE_PREFIX = "bioresolve-managers-";
+
+    private final Path directory;
+
+    private final Map<Object, Integer> indexes;
+    private final List<Object> objects;
+
+    private final Map<Path, List<ContextAutomaton.State>> blockStates; // The states referred to by the blocks on disk
+
+    /**
+     * @param directory The directory of the spill files.
+     * @throws IllegalArgumentException If the directory does not exist.
+     */
+    public ManagerSpill(final Path directory) throws IllegalArgumentException {
+        if (directory == null || !Files.isDirectory(directory))
+            throw new IllegalArgumentException("The directory of the frontier spill does not exist.");
+
+        this.directory = directory;
+        this.indexes = new IdentityHashMap<>();
+        this.objects = new ArrayList<>();
+        this.blockStates = new HashMap<>();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes a block of managers to a new file.
+     * @param managers The managers, which are retired from the coordinator.
+     * @return The file of the block.
+     * @throws UncheckedIOException If the file cannot be written.
+     */
+    public Path write(final Collection<ProcessManager> managers) throws UncheckedIOException {
+        final ManagersCoordinator coordinator = ManagersCoordinator.getInstance();
+
+        try {
+            final Path file = Files.createTempFile(directory, FILE_PREFIX, ".bin");
+            final Block block = new Block(new ArrayList<>());
+
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(managers.size());
+
+                for (final ProcessManager m : managers) {
+                    final List<InteractiveProcess> processes = m.getParallelProcesses();
+
+                    out.writeInt(m.getManagerId());
+                    out.writeInt(processes.size());
+                    for (final InteractiveProcess p : processes)
+                        p.write(out, block);
+
+                    coordinator.retireManager(m);
+                }
+            }
+
+            synchronized (blockStates) {
+                blockStates.put(file, block.states);
+            }
+
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill the frontier to disk.", e);
+        }
+    }
+
+    /**
+     * Reads a block of managers, in the order in which they were written, registering them again to the coordinator.
+     * The file is deleted.
+     * @param file The file of the block.
+     * @return The managers.
+     * @throws UncheckedIOException If the file cannot be read.
+     */
+    public List<ProcessManager> read(final Path file) throws UncheckedIOException {
+        final ManagersCoordinator coordinator = ManagersCoordinator.getInstance();
+
+        final Block block;
+        synchronized (blockStates) {
+            block = new Block(blockStates.remove(file));
+        }
+
+        try {
+            final List<ProcessManager> managers;
+
+            try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                final int count = in.readInt();
+                managers = new ArrayList<>(count);
+
+                for (int i = 0; i < count; ++i) {
+                    final int managerId = in.readInt();
+                    final int processesNumber = in.readInt();
+
+                    final List<InteractiveProcess> processes = new ArrayList<>(processesNumber);
+                    for (int j = 0; j < processesNumber; ++j)
+                        processes.add(InteractiveProcess.read(in, block, managerId));
+
+                    final ProcessManager m = new ProcessManager(managerId, ManagersCoordinator.getRS(), processes, false);
+                    coordinator.registerManager(m);
+                    managers.add(m);
+                }
+            }
+
+            Files.delete(file);
+
+            return managers;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the frontier back from disk.", e);
+        }
+    }
+
+    /**
+     * Deletes the file of a block without reading it.
+     * @param file The file of the block.
+     */
+    public void discard(final Path file) {
+        synchronized (blockStates) {
+            blockStates.remove(file);
+        }
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Could not delete the spill file " + file + ". " + e);
+        }
+    }
+
+    /**
+     * @param o An object shared by the processes (i.e. an environment or an initial context).
+     * @return The index of the object in the tables of the spill.
+     */
+    private int indexOf(final Object o) {
+        synchronized (indexes) {
+            return indexes.computeIfAbsent(o, k -> {
+                objects.add(k);
+                return objects.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * @param index The index of an object in the tables of the spill.
+     * @return The object.
+     */
+    private Object objectAt(final int index) {
+        synchronized (indexes) {
+            return objects.get(index);
+        }
+    }
+
+    /**
+     * The tables used while writing or reading a block.
+     */
+    final class Block {
+        private final List<ContextAutomaton.State> states;
+        private final Map<ContextAutomaton.State, Integer> stateIndexes;
+
+        /**
+         * @param states The states of the block, which is null if the block has never been written.
+         */
+        private Block(final List<ContextAutomaton.State> states) {
+            if (states == null)
+                throw new IllegalArgumentException("The block has not been written by this spill.");
+
+            this.states = states;
+            this.stateIndexes = new IdentityHashMap<>();
+        }
+
+        /**
+         * @param o An object shared by the processes (i.e. an environment or an initial context).
+         * @return The index of the object in the tables of the spill.
+         */
+        int indexOf(final Object o) {
+            return ManagerSpill.this.indexOf(o);
+        }
+
+        /**
+         * @param index The index of an object in the tables of the spill.
+         * @return The object.
+         */
+        Object objectAt(final int index) {
+            return ManagerSpill.this.objectAt(index);
+        }
+
+        /**
+         * @param state A state of a process of the block.
+         * @return The index of the state in the table of the block.
+         */
+        int stateIndex(final ContextAutomaton.State state) {
+            return stateIndexes.computeIfAbsent(state, k -> {
+                states.add(k);
+                return states.size() - 1;
+            });
+        }
+
+        /**
+         * @param index The index of a state in the table of the block.
+         * @return The state.
+         */
+        ContextAutomaton.State stateAt(final int index) {
+            return states.get(index);
+        }
+    }
+}
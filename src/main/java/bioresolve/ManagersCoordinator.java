@@ -1,45 +1,114 @@
 package bioresolve;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class defines a global unique managers coordinator, which is in charge of cloning them, executing them, and
- * generating the final DOT graph file.
+ * writing the graph file while they compute.<br>
+ * Managers are either run one after another, or, if the {@link #setParallelism(int) parallelism} is greater than one,
+ * as tasks of a work-stealing pool, each manager spawned by a choice becoming a new task. Since a manager only stops when
+ * it reaches a state which has already been visited, and the visited states carry everything that determines the
+ * following steps, the generated graph does not depend on the order in which the managers are run (only the numbering
+ * of its nodes does).<br>
+ * On a single thread, the managers waiting to advance are kept in a {@link Frontier}, and advance one step at a time in
+ * the order of the {@link #setExplorationStrategy(ExplorationStrategy) exploration strategy}. The exploration can be
+ * bounded in {@link #setDepthBound(int) depth} and in {@link #setMaximumFrontierSize(int) frontier size}, in which case
+ * the generated graph is partial.<br>
+ * The edges computed by the managers are streamed to the output file by an {@link OffHeapGraph}, which only keeps the
+ * nodes for numbering them (the whole graph is stored when it is minimized), and only the managers which have not
+ * stopped yet are kept. The frontier can also be {@link #setFrontierSpill(ManagerSpill, int) spilled} to disk
+ * and, together with a {@link MappedVisitedStateStore}, allows exploring state spaces larger than the memory.<br>
+ * If the {@link #setMinimization(boolean) minimization} is enabled, the graph is written once explored, as its quotient
+ * by the coarsest bisimulation.
  */
 public class ManagersCoordinator {
     private static ReactionSystem rs = null;
 
     private static ManagersCoordinator instance = null;
 
-    private final List<ProcessManager> managers;
+    private static int parallelism = 1;
 
-    private int managerId;
+    private static ExplorationStrategy strategy = ExplorationStrategy.DFS;
+    private static int depthBound = 0;
+    private static int maximumFrontierSize = 0;
+    private static boolean symmetryReduction = false;
+    private static ManagerSpill spill = null;
+    private static int managersInMemory = 0;
 
-    private final Set<NodePair> cachedManagers;
+    private static Path graphFile = Path.of("result.dot");
+    private static GraphFormat graphFormat = GraphFormat.DOT;
+    private static boolean compressGraph = false;
+    private static boolean minimization = false;
+
+    private final Map<Integer, ProcessManager> managers; // The managers which have not stopped yet
+    private final AtomicInteger managersNumber;
+    private volatile ProcessManager lastManager;
+    private final OffHeapGraph graph;
+
+    private VisitedStateStore visitedStates;
+
+    private volatile ForkJoinPool pool; // Not null while computing in parallel
+    private final AtomicInteger pendingManagers;
+    private CountDownLatch managersDone;
+    private final AtomicReference<RuntimeException> failure;
+
+    private Frontier frontier; // Not null while computing on a single thread
+    private int currentDepthBound; // The depth bound of the current exploration, or 0
+    private volatile boolean cutOff; // Set when a manager stops at the depth bound
+    private volatile boolean truncated; // Set when the frontier exceeds its maximum size
 
     private ManagersCoordinator() {
-        this.managers = new ArrayList<>();
-        this.managerId = 0;
-        this.cachedManagers = new HashSet<>();
+        this.managers = new ConcurrentHashMap<>();
+        this.managersNumber = new AtomicInteger();
+        this.graph = new OffHeapGraph();
+        this.visitedStates = new HeapVisitedStateStore(1024);
+        this.pendingManagers = new AtomicInteger();
+        this.failure = new AtomicReference<>();
     }
 
     /**
-     * Creates a new process manager managing a list of parallel {@link InteractiveProcess processes}.
+     * Creates a new process manager managing a list of parallel {@link InteractiveProcess processes}, and binds the
+     * processes to it. While computing, the manager is pushed to the frontier or, in parallel, immediately scheduled.
+     * If the frontier is full, the manager is discarded and the exploration is truncated.
      * @param processes The list of parallel {@link InteractiveProcess processes}.
      */
     public void spawnManager(final List<InteractiveProcess> processes) {
-        final ProcessManager newManager = new ProcessManager(managerId, rs, processes, false);
+        final ForkJoinPool p = pool;
+
+        // Checked first, so that a discarded manager is never registered
+        if (maximumFrontierSize > 0) {
+            final int waiting = p != null ? pendingManagers.get() : frontier != null ? frontier.size() : 0;
+            if (waiting >= maximumFrontierSize) {
+                truncated = true;
+                return;
+            }
+        }
 
-        managers.add(newManager);
-        ++managerId;
+        final ProcessManager newManager = new ProcessManager(managersNumber.getAndIncrement(), rs, processes, false);
 
-        if (BioResolve.DEBUG) System.out.println("[Info] Spawned a new process manager with id " + (managerId - 1));
+        registerManager(newManager);
+        lastManager = newManager;
 
+        newManager.bindManagerToProcesses();
+
+        if (BioResolve.DEBUG) System.out.println("[Info] Spawned a new process manager with id " + newManager.getManagerId());
+
+        if (p != null) {
+            pendingManagers.incrementAndGet();
+            p.execute(() -> runScheduledManager(newManager));
+        } else if (frontier != null) {
+            frontier.push(newManager);
+        }
     }
 
     /**
@@ -54,17 +123,15 @@ public class ManagersCoordinator {
             final InteractiveProcess toDiscard,
             final InteractiveProcess toAdd
     ) throws IllegalArgumentException {
-        if (sourceManagerId >= managerId ||  sourceManagerId < 0)
-            throw new IllegalArgumentException("No such manager.");
         if (toAdd == null)
             throw new IllegalArgumentException("Cannot push a null InteractiveProcess");
 
-        final ProcessManager sourceManager = managers.get(sourceManagerId);
+        final ProcessManager sourceManager = getManager(sourceManagerId);
         final List<InteractiveProcess> sourceProcesses = sourceManager.getParallelProcesses();
 
         final List<InteractiveProcess> filteredProcesses = new ArrayList<>(sourceProcesses.size());
         for (final InteractiveProcess p : sourceProcesses)
-            if (!p.equals(toDiscard)) filteredProcesses.add(p.clone(managerId));
+            if (!p.equals(toDiscard)) filteredProcesses.add(p.clone(-1)); // The id is assigned when spawning
 
         filteredProcesses.add(toAdd);
 
@@ -73,87 +140,336 @@ public class ManagersCoordinator {
 
     /**
      * Executes each one of the managers. Since processes can create new managers by cloning (when a choice component is
-     * found), these are appended to the end of the managers list and their computation will eventually be reached.
+     * found), these are added to the frontier and their computation will eventually be reached.<br>
+     * With {@link ExplorationStrategy#ITERATIVE_DEEPENING iterative deepening}, the managers are restarted from their
+     * initial processes with a doubled depth bound until an exploration is not cut by the bound.
      * @return The duration of the whole computation.
      */
     public Duration compute() {
-        final String sep = " ------------------------------------------- ";
-        int i = 0;
-
         Instant begin = Instant.now();
-        while (i < managers.size()) {
-            if (BioResolve.DEBUG) System.out.println(sep + "Running manager " + i + sep);
-            managers.get(i).run();
-            if (BioResolve.DEBUG) System.out.println(sep + "Ending manager " + i + sep);
+        truncated = false;
+
+        if (strategy == ExplorationStrategy.ITERATIVE_DEEPENING) {
+            final List<List<InteractiveProcess>> initialProcesses = new ArrayList<>();
+            for (final ProcessManager m : getWaitingManagers()) {
+                final List<InteractiveProcess> processes = new ArrayList<>();
+                for (final InteractiveProcess p : m.getParallelProcesses())
+                    processes.add(p.clone(-1));
+                initialProcesses.add(processes);
+            }
+
+            for (int bound = 1; ; bound = bound > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : bound * 2) {
+                explore(bound);
+                if (!cutOff || truncated) break;
+
+                if (BioResolve.OUT) System.out.println("[Info] Cut at depth " + bound + ". Restarting with a doubled depth bound.");
+
+                resetCoordinator();
+                for (final List<InteractiveProcess> processes : initialProcesses) {
+                    final List<InteractiveProcess> copy = new ArrayList<>(processes.size());
+                    for (final InteractiveProcess p : processes)
+                        copy.add(p.clone(-1));
+                    spawnManager(copy);
+                }
+            }
+        } else {
+            explore(depthBound);
 
-            ++i;
+            if (cutOff)
+                System.out.println("[Warning] The exploration has been cut at depth " + depthBound + ": the graph is partial.");
         }
         Instant end = Instant.now();
         if (BioResolve.DEBUG) System.out.println("All managers finished their jobs.");
 
-        generateDOTGraph();
+        if (truncated)
+            System.out.println("[Warning] The frontier exceeded " + maximumFrontierSize + " managers: the graph is partial.");
+
+        if (minimization)
+            writeGraph();
+
+        if (visitedStates instanceof BitstateVisitedStateStore) // The exploration may be partial
+            System.out.println(visitedStates);
 
         return Duration.between(begin, end);
     }
 
     /**
-     * Generates a DOT graph file in the current directory with a default name of (<i>result.dot</i>).
+     * Explores the states reachable from the registered managers, streaming the graph to the {@link
+     * #setGraphOutput(Path, GraphFormat, boolean) output file} as it is computed (unless it is going to be minimized).
+     * @param bound The depth bound, or 0 for an unbounded exploration.
      */
-    public void generateDOTGraph() {
-        final String GRAPHFILENAME = "result.dot";
+    private void explore(final int bound) {
+        currentDepthBound = bound;
+        cutOff = false;
 
-        final StringBuilder graph = new StringBuilder("digraph G { node [shape=box] edge [arrowhead=vee] ");
+        final GraphSink sink = minimization ? null : openGraphSink();
 
-        final Set<String> nodes = new HashSet<>();
-        final Set<String> arcs = new HashSet<>();
+        graph.setSink(sink);
+        try {
+            if (parallelism > 1)
+                computeInParallel();
+            else
+                computeSequentially();
+        } finally {
+            graph.flush();
+            final UncheckedIOException failure = graph.getSinkFailure();
+            graph.setSink(null);
+            closeGraphSink(sink);
+
+            if (failure != null)
+                System.err.println("Could not write the graph to file. " + failure);
+        }
+    }
+
+    /**
+     * @return A sink writing to the output file, or null if the file cannot be opened.
+     */
+    private static GraphSink openGraphSink() {
+        try {
+            return graphFormat.createSink(graphFile, compressGraph);
+        } catch (IOException e) {
+            System.err.println("Could not write the graph to file. " + e);
+            return null;
+        }
+    }
+
+    private static void closeGraphSink(final GraphSink sink) {
+        if (sink == null)
+            return;
+
+        try {
+            sink.close();
+        } catch (IOException e) {
+            System.err.println("Could not write the graph to file. " + e);
+        }
+    }
 
-        for (final ProcessManager p : managers) {
-            final List<NodePair> pGraph = p.getProcessGraph();
-            for (final NodePair node : pGraph) {
-                final String from = "\"" + Entity.stringifyEntitiesCollection(node.from()) + node.fromContext() + "\"";
-                final String to = "\"" + Entity.stringifyEntitiesCollection(node.to()) + node.toContext() + "\"";
-                final String arc = from + " -> " + to + " [label = \"" + Entity.stringifyEntitiesCollection(node.arc()) + "\"]";
+    /**
+     * Advances the managers one step at a time, in the order given by the frontier. The managers spawned during a step
+     * are pushed before the manager which made the step, if this has not stopped.
+     */
+    private void computeSequentially() {
+        final Frontier f = Frontier.of(strategy, spill, managersInMemory);
+        for (final ProcessManager m : getWaitingManagers())
+            f.push(m);
 
-                nodes.add(from);
-                nodes.add(to);
-                arcs.add(arc);
+        frontier = f;
+        try {
+            while (!f.isEmpty() && !truncated) {
+                final ProcessManager manager = f.poll();
+
+                if (BioResolve.DEBUG) System.out.println("[Info] Advancing manager " + manager.getManagerId());
+                if (manager.compute())
+                    f.push(manager);
+                else
+                    retireManager(manager);
             }
+
+            for (final ProcessManager m : f.clear()) // Left by a truncated exploration
+                retireManager(m);
+        } finally {
+            frontier = null;
+        }
+    }
+
+    /**
+     * @return The managers which have not stopped yet, ordered by id.
+     */
+    private List<ProcessManager> getWaitingManagers() {
+        final List<ProcessManager> res = new ArrayList<>(managers.values());
+        res.sort(Comparator.comparingInt(ProcessManager::getManagerId));
+
+        return res;
+    }
+
+    /**
+     * Runs the managers on a work-stealing pool, waiting for all of them (including those spawned while computing) to
+     * finish.
+     * @throws RuntimeException If the computation of a manager failed.
+     */
+    private void computeInParallel() throws RuntimeException {
+        final List<ProcessManager> initialManagers = getWaitingManagers();
+
+        if (initialManagers.isEmpty())
+            return;
+
+        final ForkJoinPool p = new ForkJoinPool(parallelism);
+        managersDone = new CountDownLatch(1);
+        pendingManagers.set(initialManagers.size());
+        pool = p;
+
+        try {
+            for (final ProcessManager m : initialManagers)
+                p.execute(() -> runScheduledManager(m));
+
+            managersDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the managers to finish.", e);
+        } finally {
+            pool = null;
+            p.shutdownNow();
         }
 
-        for (final String node : nodes)
-            graph.append(node).append(";\t");
+        final RuntimeException e = failure.getAndSet(null);
+        if (e != null)
+            throw e;
+    }
+
+    /**
+     * Runs a manager as a task of the pool, recording its failure and signaling when the last pending manager finishes.
+     * Managers scheduled after a failure are skipped.
+     */
+    private void runScheduledManager(final ProcessManager manager) {
+        try {
+            if (failure.get() == null && !truncated)
+                runManager(manager);
+            retireManager(manager);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            if (pendingManagers.decrementAndGet() == 0)
+                managersDone.countDown();
+        }
+    }
 
-        for (final String arc : arcs)
-            graph.append(arc).append(";\t");
+    private void runManager(final ProcessManager manager) {
+        final String sep = " ------------------------------------------- ";
 
-        graph.append("}");
+        if (BioResolve.DEBUG) System.out.println(sep + "Running manager " + manager.getManagerId() + sep);
+        manager.run();
+        if (BioResolve.DEBUG) System.out.println(sep + "Ending manager " + manager.getManagerId() + sep);
+    }
+
+    /**
+     * Writes the graph computed so far to the {@link #setGraphOutput(Path, GraphFormat, boolean) output file}, or its
+     * quotient if the {@link #setMinimization(boolean) minimization} is enabled. Without minimization, the graph is
+     * streamed while computing and its edges are not kept, hence this only writes those computed while the output file
+     * could not be opened.
+     */
+    public void writeGraph() {
+        final GraphSink sink = openGraphSink();
+        if (sink == null)
+            return;
+
+        final OffHeapGraph written = minimization ? BisimulationMinimizer.minimize(graph) : graph;
+        if (minimization && BioResolve.OUT)
+            System.out.println("[Info] The graph has been minimized from " + graph.nodeCount() + " nodes and "
+                    + graph.edgeCount() + " edges to " + written.nodeCount() + " nodes and " + written.edgeCount() + " edges.");
 
         try {
-            final BufferedWriter writer = new BufferedWriter(new FileWriter(GRAPHFILENAME));
-            writer.write(graph.toString());
-            writer.close();
-        } catch (IOException e) {
-            System.err.println("Could not write the .dot graph to file. " + e);
+            written.writeTo(sink);
+        } catch (UncheckedIOException e) {
+            System.err.println("Could not write the graph to file. " + e);
+        } finally {
+            closeGraphSink(sink);
+            if (written != graph)
+                written.clear();
         }
     }
 
     /**
-     * Returns the id of the last manager in the managers list.
-     * @return The id of the last manager.
+     * Returns the last spawned manager.
+     * @return The last manager.
      */
     public ProcessManager getLastManager() {
-        if (managerId > 0)
-            return managers.get(managerId - 1);
+        return lastManager;
+    }
+
+    /**
+     * @param id The unique id of a manager.
+     * @return The manager having the given id.
+     * @throws IllegalArgumentException If the id is invalid, or if the manager has stopped or has been spilled.
+     */
+    public ProcessManager getManager(final int id) throws IllegalArgumentException {
+        final ProcessManager m = managers.get(id);
+        if (m == null)
+            throw new IllegalArgumentException("No such manager.");
 
-        return null;
+        return m;
     }
 
-    public int getNewManagerId() {
-        return managerId;   // managerId tracks the Id of the next manager that will be created
+    /**
+     * @return The number of managers spawned so far.
+     */
+    public int getManagersNumber() {
+        return managersNumber.get();
+    }
+
+    /**
+     * Registers a manager which has been spawned or read back from a {@link ManagerSpill spill}.
+     * @param manager The manager.
+     */
+    void registerManager(final ProcessManager manager) {
+        managers.put(manager.getManagerId(), manager);
     }
 
-    public Set<NodePair> getCachedManagers() {
-        return cachedManagers;
+    /**
+     * Unregisters a manager which has stopped or is being spilled.
+     * @param manager The manager.
+     */
+    void retireManager(final ProcessManager manager) {
+        managers.remove(manager.getManagerId());
+    }
+
+    /**
+     * Adds an edge computed by a manager to the graph, through the {@link OffHeapGraph#bufferEdge(NodePair) buffer} of
+     * the calling thread, which is flushed at the end of the exploration.
+     * @param edge The edge.
+     */
+    public void addEdge(final NodePair edge) {
+        graph.bufferEdge(edge);
+    }
+
+    /**
+     * @return The graph computed so far, stored outside of the heap.
+     */
+    public OffHeapGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Marks a state as visited.
+     * @param fingerprint The fingerprint of the state reached by a manager.
+     * @param managerId The unique id of the manager.
+     * @return True if the state had not been visited yet.
+     */
+    public boolean markVisited(final long fingerprint, final int managerId) {
+        return visitedStates.putIfAbsent(fingerprint, managerId) == VisitedStateStore.ABSENT;
+    }
+
+    /**
+     * Checks whether a manager has to stop because of the depth bound, recording that the exploration has been cut.
+     * @param depth The number of steps made by the processes of the manager.
+     * @return True if the depth bound has been reached.
+     */
+    public boolean reachedDepthBound(final int depth) {
+        final int bound = currentDepthBound;
+        if (bound == 0 || depth < bound)
+            return false;
+
+        cutOff = true;
+        return true;
+    }
+
+    /**
+     * Sets the store of the visited states, which must be empty. It cannot be changed while computing.
+     * @param store The store.
+     * @throws IllegalArgumentException If the store is null.
+     */
+    public void setVisitedStateStore(final VisitedStateStore store) throws IllegalArgumentException {
+        if (store == null)
+            throw new IllegalArgumentException("The visited state store cannot be null.");
+
+        this.visitedStates = store;
+    }
+
+    public VisitedStateStore getVisitedStateStore() {
+        return visitedStates;
+    }
+
+    public static ReactionSystem getRS() {
+        return rs;
     }
 
     /**
@@ -164,13 +480,161 @@ public class ManagersCoordinator {
         ManagersCoordinator.rs = rs;
     }
 
+    /**
+     * Sets the number of threads running the managers. With a single thread (the default), the managers are run one
+     * after another on the calling thread.
+     * @param threads The number of threads.
+     * @throws IllegalArgumentException If the number of threads is not positive.
+     */
+    public static void setParallelism(final int threads) throws IllegalArgumentException {
+        if (threads < 1)
+            throw new IllegalArgumentException("The number of threads has to be positive.");
+
+        ManagersCoordinator.parallelism = threads;
+    }
+
+    public static int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the order in which the managers are advanced when computing on a single thread (depth-first by default). When
+     * computing in parallel, the managers are run as they are scheduled, but the depth bound of the iterative deepening
+     * still applies.
+     * @param strategy The exploration strategy.
+     * @throws IllegalArgumentException If the strategy is null.
+     */
+    public static void setExplorationStrategy(final ExplorationStrategy strategy) throws IllegalArgumentException {
+        if (strategy == null)
+            throw new IllegalArgumentException("The exploration strategy cannot be null.");
+
+        ManagersCoordinator.strategy = strategy;
+    }
+
+    public static ExplorationStrategy getExplorationStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Sets the maximum number of steps made by the managers, which stop once they reach it. A breadth-first exploration
+     * reaches exactly the states within the bound, while a depth-first one may miss those first reached by a longer
+     * path. It is ignored by the iterative deepening, which sets its own bound.
+     * @param bound The depth bound, or 0 (the default) for an unbounded exploration.
+     * @throws IllegalArgumentException If the bound is negative.
+     */
+    public static void setDepthBound(final int bound) throws IllegalArgumentException {
+        if (bound < 0)
+            throw new IllegalArgumentException("The depth bound cannot be negative.");
+
+        ManagersCoordinator.depthBound = bound;
+    }
+
+    public static int getDepthBound() {
+        return depthBound;
+    }
+
+    /**
+     * Sets the maximum number of managers waiting to advance. When a choice would exceed it, the exploration stops and
+     * the graph computed so far is generated.
+     * @param size The maximum size, or 0 (the default) for an unbounded frontier.
+     * @throws IllegalArgumentException If the size is negative.
+     */
+    public static void setMaximumFrontierSize(final int size) throws IllegalArgumentException {
+        if (size < 0)
+            throw new IllegalArgumentException("The maximum frontier size cannot be negative.");
+
+        ManagersCoordinator.maximumFrontierSize = size;
+    }
+
+    public static int getMaximumFrontierSize() {
+        return maximumFrontierSize;
+    }
+
+    /**
+     * Enables or disables the symmetry reduction. Since the parallel processes only interact through the union of their
+     * results, the states only differing by the order of the processes (e.g. those reached by <i>x, x</i> choosing
+     * different branches) have the same following steps: with the reduction, they are identified, and the contexts of
+     * the processes are listed in lexicographical order in the nodes of the graph. The graph is then the quotient of the
+     * complete one by the permutations of the processes.
+     * @param enabled True to enable the reduction (it is disabled by default).
+     */
+    public static void setSymmetryReduction(final boolean enabled) {
+        ManagersCoordinator.symmetryReduction = enabled;
+    }
+
+    public static boolean isSymmetryReduction() {
+        return symmetryReduction;
+    }
+
+    /**
+     * Sets the spill receiving the waiting managers which exceed the given number, when computing on a single thread.
+     * @param spill The spill, or null (the default) to keep the whole frontier in memory.
+     * @param managersInMemory The maximum number of waiting managers kept in memory.
+     * @throws IllegalArgumentException If the spill is given and the number of managers is less than two.
+     */
+    public static void setFrontierSpill(final ManagerSpill spill, final int managersInMemory) throws IllegalArgumentException {
+        if (spill != null && managersInMemory < 2)
+            throw new IllegalArgumentException("At least two managers have to be kept in memory.");
+
+        ManagersCoordinator.spill = spill;
+        ManagersCoordinator.managersInMemory = managersInMemory;
+    }
+
+    public static ManagerSpill getFrontierSpill() {
+        return spill;
+    }
+
+    /**
+     * Sets where and how the graph is written (by default, to <i>result.dot</i> in the current directory, as an
+     * uncompressed DOT graph).
+     * @param file The output file. With compression, <i>.gz</i> is appended to its name if missing.
+     * @param format The format of the graph.
+     * @param compress True to compress the output with gzip.
+     * @throws IllegalArgumentException If the file or the format is null.
+     */
+    public static void setGraphOutput(final Path file, final GraphFormat format, final boolean compress) throws IllegalArgumentException {
+        if (file == null || format == null)
+            throw new IllegalArgumentException("The output file and format cannot be null.");
+
+        final String name = file.getFileName().toString();
+
+        ManagersCoordinator.graphFile = compress && !name.endsWith(".gz") ? file.resolveSibling(name + ".gz") : file;
+        ManagersCoordinator.graphFormat = format;
+        ManagersCoordinator.compressGraph = compress;
+    }
+
+    /**
+     * Enables or disables the minimization of the graph. With the minimization, the graph is not streamed while
+     * computing: once explored, it is replaced by its quotient by the coarsest strong bisimulation, where the nodes
+     * having the same result and the same transitions up to bisimilarity are merged (each class is shown by its first
+     * node). The size of the graph can be reduced by orders of magnitude, at the cost of keeping it until the end.
+     * @param enabled True to enable the minimization (it is disabled by default).
+     */
+    public static void setMinimization(final boolean enabled) {
+        ManagersCoordinator.minimization = enabled;
+    }
+
+    public static boolean isMinimization() {
+        return minimization;
+    }
+
+    public static Path getGraphFile() {
+        return graphFile;
+    }
+
+    public static GraphFormat getGraphFormat() {
+        return graphFormat;
+    }
+
     /**
      * Resets the internal state of the coordinator. This allows to multiple executions through the GUI.
      */
     public void resetCoordinator() {
         managers.clear();
-        cachedManagers.clear();
-        managerId = 0;
+        managersNumber.set(0);
+        lastManager = null;
+        graph.clear();
+        visitedStates.clear();
     }
 
     /**
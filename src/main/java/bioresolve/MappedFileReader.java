@@ -0,0 +1,93 @@
+package bioresolve;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A reader decoding an UTF-8 file through memory-mapped windows of its channel. Only one window is mapped at a time, so
+ * files of any size can be read without copying their content to the heap.
+ */
+public class MappedFileReader extends Reader {
+    private static final long WINDOW_SIZE = 64L << 20;
+    private static final ByteBuffer NO_BYTES = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean ended;
+
+    /**
+     * @param file The file to read.
+     * @throws IOException If the file cannot be opened.
+     */
+    public MappedFileReader(final Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    /**
+     * Maps the window starting at the given position of the file.
+     * @param start The position of the first byte of the window.
+     */
+    private void map(final long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+    }
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if (len == 0)
+            return 0;
+
+        final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+
+        while (out.position() == off && !ended) {
+            final long next = window == null ? 0 : windowStart + window.position();
+
+            if (next >= size) { // Flushes the decoder once the whole file has been consumed
+                decoder.decode(NO_BYTES, out, true);
+                decoder.flush(out);
+                ended = true;
+                break;
+            }
+
+            if (window == null || !window.hasRemaining())
+                map(next);
+
+            final boolean last = windowStart + window.limit() == size;
+            final CoderResult res = decoder.decode(window, out, last);
+
+            if (res.isError())
+                res.throwException();
+            if (res.isUnderflow() && window.hasRemaining()) // A character is split between two windows
+                map(windowStart + window.position());
+            if (res.isOverflow())
+                break;
+        }
+
+        final int read = out.position() - off;
+        return read == 0 && ended ? -1 : read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
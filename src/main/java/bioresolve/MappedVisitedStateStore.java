@@ -0,0 +1,129 @@
+package bioresolve;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A striped visited state store keeping its slots in memory-mapped files, so that stores larger than the memory are
+ * paged to disk by the operating system instead of exhausting the heap or the direct memory.<br>
+ * Each stripe maps its own temporary file in the given directory. The files are deleted as soon as they are mapped, thus
+ * they do not outlive the program (their space is released when the mappings are garbage collected). Where a mapped
+ * file cannot be deleted (e.g. on Windows), its deletion is tried again when its stripe is released, and left to the
+ * exit of the program if it still fails.
+ */
+public class MappedVisitedStateStore extends StripedVisitedStateStore {
+    private static final String FILE_PREFIX = "bioresolve-states-";
+
+    private final Path directory;
+
+    /**
+     * @param directory The directory of the mapped files.
+     * @param expectedSize The number of states expected to be stored. The store grows past it if needed.
+     * @throws IllegalArgumentException If the directory does not exist or if the expected size is negative.
+     */
+    public MappedVisitedStateStore(final Path directory, final long expectedSize) throws IllegalArgumentException {
+        super(expectedSize);
+
+        if (directory == null || !Files.isDirectory(directory))
+            throw new IllegalArgumentException("The directory of the visited state store does not exist.");
+
+        this.directory = directory;
+    }
+
+    /**
+     * Creates a stripe mapping a new file.
+     * @throws UncheckedIOException If the file cannot be created or mapped.
+     */
+    @Override
+    protected Stripe newStripe(final int capacity) throws UncheckedIOException {
+        if (capacity > Integer.MAX_VALUE / 16)
+            throw new IllegalArgumentException("Too many states for a single stripe.");
+
+        try {
+            final Path file = Files.createTempFile(directory, FILE_PREFIX, ".bin");
+            final LongBuffer slots;
+
+            // The region is zero-filled when the file is extended by the mapping
+            try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                slots = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * 16)
+                        .order(ByteOrder.nativeOrder())
+                        .asLongBuffer();
+            } catch (IOException e) {
+                delete(file);
+                throw e;
+            }
+
+            return new MappedStripe(slots, capacity, delete(file) ? null : file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map the visited state store to a file.", e);
+        }
+    }
+
+    /**
+     * Deletes a file, which may fail while the file is mapped on some platforms: the file is then deleted at the exit of
+     * the program, unless a later attempt succeeds.
+     * @param file The file.
+     * @return True if the file has been deleted.
+     */
+    private static boolean delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + " mapped in " + directory;
+    }
+
+    /**
+     * Stores each fingerprint next to its value.
+     */
+    private static final class MappedStripe extends Stripe {
+        private final LongBuffer slots;
+        private final int capacity;
+        private final Path file; // Null if the file has already been deleted
+
+        private MappedStripe(final LongBuffer slots, final int capacity, final Path file) {
+            this.slots = slots;
+            this.capacity = capacity;
+            this.file = file;
+        }
+
+        @Override
+        protected void release() {
+            if (file != null) delete(file);
+        }
+
+        @Override
+        protected int capacity() {
+            return capacity;
+        }
+
+        @Override
+        protected long key(final int slot) {
+            return slots.get(slot * 2);
+        }
+
+        @Override
+        protected long value(final int slot) {
+            return slots.get(slot * 2 + 1);
+        }
+
+        @Override
+        protected void set(final int slot, final long key, final long value) {
+            slots.put(slot * 2, key);
+            slots.put(slot * 2 + 1, value);
+        }
+    }
+}
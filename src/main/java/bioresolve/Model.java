@@ -0,0 +1,12 @@
+package bioresolve;
+
+import java.util.List;
+
+/**
+ * A whole model, i.e. the reaction system together with the environment and the parallel contexts to compute.
+ * @param reactionSystem
+ * @param environment
+ * @param contexts
+ */
+public record Model(ReactionSystem reactionSystem, Environment environment, List<Context> contexts) {
+}
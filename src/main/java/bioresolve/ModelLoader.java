@@ -0,0 +1,101 @@
+package bioresolve;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Loads the reactions, the environment and the context of a model from files, parsing them while they are read instead
+ * of reading the whole files into strings.<br>
+ * Regular files are read through memory-mapped windows ({@link MappedFileReader}), the others (e.g. pipes) through a
+ * buffered reader.
+ */
+public class ModelLoader {
+    private ModelLoader() {}
+
+    /**
+     * Opens a file for reading its characters.
+     * @param file The file.
+     * @return The reader, which has to be closed by the caller.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static Reader open(final Path file) throws IOException {
+        if (Files.isRegularFile(file))
+            return new MappedFileReader(file);
+
+        return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Loads a reaction system from a file containing its reactions.
+     * @param file The file of the reactions.
+     * @return The reaction system.
+     * @throws IOException If the file cannot be read.
+     * @throws ModelParseException If the reactions are wrongly specified.
+     */
+    public static ReactionSystem loadReactions(final Path file) throws IOException, ModelParseException {
+        try (final Reader reader = open(file)) {
+            return loadReactions(reader);
+        }
+    }
+
+    /**
+     * Loads a reaction system by parsing its reactions while they are read.
+     * @param reader The source of the reactions.
+     * @return The reaction system.
+     * @throws ModelParseException If the reactions are wrongly specified.
+     */
+    public static ReactionSystem loadReactions(final Reader reader) throws ModelParseException {
+        final ReactionParser parser = new ReactionParser(reader);
+        parser.parse();
+
+        return parser.toReactionSystem();
+    }
+
+    /**
+     * Loads an environment from a file containing its definitions.
+     * @param file The file of the environment.
+     * @return The environment.
+     * @throws IOException If the file cannot be read.
+     */
+    public static Environment loadEnvironment(final Path file) throws IOException {
+        try (final Reader reader = open(file)) {
+            return loadEnvironment(reader);
+        }
+    }
+
+    /**
+     * Loads an environment, parsing its definitions while they are read.
+     * @param reader The source of the environment.
+     * @return The environment.
+     * @throws ModelParseException If the environment is wrongly specified.
+     */
+    public static Environment loadEnvironment(final Reader reader) throws ModelParseException {
+        return new Environment(new ContextParser(reader).parseEnvironment());
+    }
+
+    /**
+     * Loads the (possibly parallel) context from a file.
+     * @param file The file of the context.
+     * @return The list of parallel contexts.
+     * @throws IOException If the file cannot be read.
+     */
+    public static List<Context> loadContext(final Path file) throws IOException {
+        try (final Reader reader = open(file)) {
+            return loadContext(reader);
+        }
+    }
+
+    /**
+     * Loads the (possibly parallel) context, parsing it while it is read.
+     * @param reader The source of the context.
+     * @return The list of parallel contexts.
+     * @throws ModelParseException If the context is wrongly specified.
+     */
+    public static List<Context> loadContext(final Reader reader) throws ModelParseException {
+        return new ContextParser(reader).parseParallel();
+    }
+}
@@ -0,0 +1,31 @@
+package bioresolve;
+
+/**
+ * Thrown when a reaction, context or environment string does not respect the expected syntax. It carries the position
+ * at which the error has been found.
+ */
+public class ModelParseException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+    private final int column;
+
+    /**
+     * @param message The description of the error.
+     * @param line The line (starting from 1) at which the error has been found.
+     * @param column The column (starting from 1) at which the error has been found.
+     */
+    public ModelParseException(final String message, final int line, final int column) {
+        super("Line " + line + ", column " + column + ": " + message);
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+}
@@ -0,0 +1,193 @@
+package bioresolve;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+/**
+ * A character scanner shared by the model parsers. It reads its input through a {@link Reader} in fixed-size chunks,
+ * hence the input never needs to be held in memory as a whole, and it keeps track of the current line and column for
+ * the error messages.
+ */
+public class ModelScanner {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private int line = 1;
+    private int column = 1;
+
+    /**
+     * @param reader The source of the characters. It is not closed by the scanner.
+     */
+    public ModelScanner(final Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return The next character without consuming it, or -1 if the input has ended.
+     */
+    public int peek() {
+        if (position == limit && !fill())
+            return -1;
+
+        return buffer[position];
+    }
+
+    /**
+     * @return The next character, or -1 if the input has ended.
+     */
+    public int next() {
+        final int c = peek();
+        if (c < 0)
+            return c;
+
+        ++position;
+        if (c == '\n') {
+            ++line;
+            column = 1;
+        } else
+            ++column;
+
+        return c;
+    }
+
+    private boolean fill() {
+        try {
+            int read;
+            do read = reader.read(buffer, 0, BUFFER_SIZE); while (read == 0);
+
+            position = 0;
+            limit = Math.max(read, 0);
+
+            return read > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the model. " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Skips the whitespaces.
+     */
+    public void skipWhitespace() {
+        int c;
+        while ((c = peek()) >= 0 && Character.isWhitespace(c))
+            next();
+    }
+
+    /**
+     * Skips the whitespaces, then checks whether the input has ended.
+     * @return True if there are no more characters other than whitespaces.
+     */
+    public boolean atEnd() {
+        skipWhitespace();
+        return peek() < 0;
+    }
+
+    /**
+     * Skips the whitespaces, then consumes the next character if it is the given one.
+     * @param c The expected character.
+     * @return True if the character has been consumed.
+     */
+    public boolean accept(final char c) {
+        skipWhitespace();
+        if (peek() != c)
+            return false;
+
+        next();
+        return true;
+    }
+
+    /**
+     * Skips the whitespaces, then consumes the given character.
+     * @param c The expected character.
+     * @throws ModelParseException If the next character is a different one.
+     */
+    public void expect(final char c) throws ModelParseException {
+        if (!accept(c))
+            throw error("expected '" + c + "' but found " + describeNext());
+    }
+
+    /**
+     * Skips the whitespaces, then checks whether an identifier (i.e. a word made of letters, digits and underscores)
+     * follows.
+     * @return True if an identifier follows.
+     */
+    public boolean atIdentifier() {
+        skipWhitespace();
+        return isWordChar(peek());
+    }
+
+    /**
+     * Skips the whitespaces, then consumes an identifier.
+     * @param what The description of what is expected, used in the error message.
+     * @return The identifier.
+     * @throws ModelParseException If no identifier follows.
+     */
+    public String identifier(final String what) throws ModelParseException {
+        if (!atIdentifier())
+            throw error("expected " + what + " but found " + describeNext());
+
+        final StringBuilder s = new StringBuilder();
+        while (isWordChar(peek()))
+            s.append((char) next());
+
+        return s.toString();
+    }
+
+    /**
+     * Skips the whitespaces, then consumes a non-negative integer.
+     * @param what The description of what is expected, used in the error message.
+     * @return The integer.
+     * @throws ModelParseException If no integer follows or if it is too large.
+     */
+    public int number(final String what) throws ModelParseException {
+        skipWhitespace();
+        if (peek() < '0' || peek() > '9')
+            throw error("expected " + what + " but found " + describeNext());
+
+        final int startLine = line;
+        final int startColumn = column;
+        long res = 0;
+
+        while (peek() >= '0' && peek() <= '9') {
+            res = res * 10 + (next() - '0');
+            if (res > Integer.MAX_VALUE)
+                throw new ModelParseException(what + " is too large", startLine, startColumn);
+        }
+
+        return (int) res;
+    }
+
+    /**
+     * @return A description of the next character, used in the error messages.
+     */
+    public String describeNext() {
+        final int c = peek();
+        return c < 0 ? "the end of the input" : "'" + (char) c + "'";
+    }
+
+    /**
+     * Creates an exception located at the current position.
+     * @param message The description of the error.
+     * @return The exception.
+     */
+    public ModelParseException error(final String message) {
+        return new ModelParseException(message, line, column);
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    private static boolean isWordChar(final int c) {
+        return c >= 0 && (Character.isLetterOrDigit(c) || c == '_');
+    }
+}
@@ -20,7 +20,9 @@ public record NodePair(Set<Entity> from, String fromContext, Set<Entity> to, Str
 
         NodePair np = (NodePair) o;
         return from.equals(np.from)
+                && fromContext.equals(np.fromContext)
                 && to.equals(np.to)
+                && toContext.equals(np.toContext)
                 && arc.equals(np.arc);
     }
 
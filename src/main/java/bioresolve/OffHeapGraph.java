@@ -0,0 +1,722 @@
+package bioresolve;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * The graph generated by the exploration, stored outside of the heap so that the time spent by the garbage collector
+ * does not grow with its size.<br>
+ * Each distinct node (i.e. a result together with the contexts of the processes), each distinct arc label and each
+ * distinct context string is interned once as a record of a byte arena made of direct buffers, and is identified by a
+ * dense id; a node refers to its context string by id. Edges are stored as (from, to, label) triples of ids in a direct
+ * buffer, and are deduplicated. The hash indexes over the records and the edges are direct buffers as well, hence the
+ * only objects on the heap are the buffers themselves.<br>
+ * Results and labels are encoded as the words of their {@link EntitySet bitsets}, over the entity table of the first
+ * edge added to the graph.<br>
+ * The managers {@link #bufferEdge(NodePair) buffer} their edges: each thread encodes its edges into a buffer of its own,
+ * which is interned into the graph under its lock once full, so that the threads only contend once every
+ * {@link #BUFFERED_EDGES} edges. The buffers left are interned by {@link #flush()}.<br>
+ * The new nodes, labels and edges can be streamed to a {@link GraphSink} as soon as they are interned. While streaming,
+ * the edges are passed to the sink without being stored: only the nodes, labels and context strings are kept, for
+ * numbering them, and the edges are deduplicated through a set of their 64-bit {@link StateFingerprint fingerprints}.
+ * If the sink fails, the failure is recorded for the coordinator and the streaming stops.
+ */
+public class OffHeapGraph {
+    private static final int BUFFERED_EDGES = 256;
+
+    private volatile EntityTable table; // Taken from the first edge
+
+    private final Records nodes;
+    private final Records labels;
+    private final Records contexts;
+    private final Edges edges;
+    private Fingerprints streamedEdges; // The fingerprints of the edges passed to the sink
+
+    private final Queue<EdgeBuffer> buffers; // The buffers of the threads, not yet flushed
+    private final ThreadLocal<EdgeBuffer> localBuffer;
+    private final EdgeBuffer directBuffer; // Encodes the edges added directly, under the lock
+
+    private ByteBuffer scratch; // Encodes the node records before interning them
+
+    private GraphSink sink; // Receives the new nodes, labels and edges, if not null
+    private UncheckedIOException sinkFailure; // The first failure of the sink, which stopped the streaming
+
+    public OffHeapGraph() {
+        this.nodes = new Records();
+        this.labels = new Records();
+        this.contexts = new Records();
+        this.edges = new Edges();
+        this.streamedEdges = new Fingerprints();
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.localBuffer = new ThreadLocal<>();
+        this.directBuffer = new EdgeBuffer();
+        this.scratch = ByteBuffer.allocate(256).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Adds an edge to the graph, interning its nodes and its label.
+     * @param edge The edge.
+     * @return True if the graph did not already contain the edge.
+     */
+    public synchronized boolean addEdge(final NodePair edge) {
+        directBuffer.add(tableOf(edge), edge);
+
+        final ByteBuffer data = directBuffer.data.flip();
+        final boolean added = intern(data);
+        directBuffer.clear();
+
+        return added;
+    }
+
+    /**
+     * Adds an edge to the buffer of the calling thread, interning the whole buffer into the graph once it is full. The
+     * edge is in the graph after the next {@link #flush()} at the latest.
+     * @param edge The edge.
+     */
+    public void bufferEdge(final NodePair edge) {
+        EdgeBuffer b = localBuffer.get();
+        if (b == null || b.detached) {
+            b = new EdgeBuffer();
+            localBuffer.set(b);
+            buffers.add(b);
+        }
+
+        b.add(tableOf(edge), edge);
+        if (b.size == BUFFERED_EDGES)
+            synchronized (this) {
+                intern(b);
+            }
+    }
+
+    /**
+     * Interns the edges left in the buffers of the threads. No edge can be buffered meanwhile.
+     */
+    public synchronized void flush() {
+        for (EdgeBuffer b = buffers.poll(); b != null; b = buffers.poll()) {
+            intern(b);
+            b.detached = true;
+        }
+    }
+
+    /**
+     * @return The entity table of the graph, taken from the given edge if this is the first one.
+     */
+    private EntityTable tableOf(final NodePair edge) {
+        EntityTable t = table;
+        if (t == null)
+            synchronized (this) {
+                if (table == null)
+                    table = edge.to() instanceof EntitySet set ? set.getTable() : ManagersCoordinator.getRS().getEntityTable();
+                t = table;
+            }
+
+        return t;
+    }
+
+    private void intern(final EdgeBuffer b) {
+        final ByteBuffer data = b.data.flip();
+        while (data.hasRemaining())
+            intern(data);
+
+        b.clear();
+    }
+
+    /**
+     * Interns the edge encoded at the position of the buffer by {@link EdgeBuffer#add(EntityTable, NodePair)}, moving
+     * the position after it. While streaming, the edge is passed to the sink instead of being stored.
+     * @return True if the graph did not already contain the edge.
+     */
+    private boolean intern(final ByteBuffer data) {
+        final int from = internNode(data);
+        final int to = internNode(data);
+
+        final ByteBuffer arc = nextSet(data);
+        final int labelsNumber = labels.size();
+        final int label = labels.intern(arc);
+        if (sink != null && labels.size() > labelsNumber)
+            try {
+                sink.label(label, label(label));
+            } catch (UncheckedIOException e) {
+                stopStreaming(e);
+            }
+
+        if (sink == null)
+            return edges.add(from, to, label);
+
+        if (!streamedEdges.add(new StateFingerprint().add(from).add(to).add(label).value()))
+            return false;
+
+        try {
+            sink.edge(from, to, label, label(label));
+        } catch (UncheckedIOException e) {
+            stopStreaming(e);
+        }
+
+        return true;
+    }
+
+    private int internNode(final ByteBuffer data) {
+        final ByteBuffer result = nextSet(data);
+        final int contextLength = data.getInt();
+        final int contextId = contexts.intern(data.slice(data.position(), contextLength));
+        data.position(data.position() + contextLength);
+
+        final int size = result.remaining() + 4;
+        if (scratch.capacity() < size)
+            scratch = ByteBuffer.allocate(Math.max(size, scratch.capacity() * 2)).order(ByteOrder.nativeOrder());
+
+        scratch.clear();
+        scratch.put(result).putInt(contextId).flip();
+
+        final int nodesNumber = nodes.size();
+        final int id = nodes.intern(scratch);
+        if (sink != null && nodes.size() > nodesNumber)
+            try {
+                sink.node(id, nodeResult(id), contexts.text(contextId));
+            } catch (UncheckedIOException e) {
+                stopStreaming(e);
+            }
+
+        return id;
+    }
+
+    private void stopStreaming(final UncheckedIOException failure) {
+        sink = null;
+        sinkFailure = failure;
+    }
+
+    /**
+     * @return The set encoded at the position of the buffer, i.e. its number of words followed by the words, moving the
+     * position after it.
+     */
+    private static ByteBuffer nextSet(final ByteBuffer data) {
+        final ByteBuffer set = data.slice(data.position(), 4 + data.getInt(data.position()) * 8);
+        data.position(data.position() + set.remaining());
+
+        return set;
+    }
+
+    /**
+     * Sets the sink receiving the nodes, labels and edges interned from now on. The edges are not stored while a sink is
+     * set.
+     * @param sink The sink, or null to stop streaming.
+     */
+    public synchronized void setSink(final GraphSink sink) {
+        this.sink = sink;
+        this.sinkFailure = null;
+        if (sink != null)
+            streamedEdges = new Fingerprints();
+    }
+
+    /**
+     * @return The failure of the sink which stopped the streaming, or null if the sink has not failed.
+     */
+    public synchronized UncheckedIOException getSinkFailure() {
+        return sinkFailure;
+    }
+
+    /**
+     * Writes the whole graph to a sink, the nodes and labels first and then the edges, in the order in which they have
+     * been added.
+     * @param sink The sink.
+     */
+    public synchronized void writeTo(final GraphSink sink) {
+        for (int i = 0; i < nodes.size(); ++i)
+            sink.node(i, nodeResult(i), nodeContext(i));
+
+        for (int i = 0; i < labels.size(); ++i)
+            sink.label(i, label(i));
+
+        for (int i = 0; i < edges.size(); ++i)
+            sink.edge(edgeFrom(i), edgeTo(i), edgeLabel(i), label(edgeLabel(i)));
+    }
+
+    /**
+     * @return The number of distinct labels.
+     */
+    public synchronized int labelCount() {
+        return labels.size();
+    }
+
+    /**
+     * @return The number of distinct nodes.
+     */
+    public synchronized int nodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * @return The number of distinct edges stored, i.e. not streamed.
+     */
+    public synchronized int edgeCount() {
+        return edges.size();
+    }
+
+    /**
+     * @param edge The index of an edge, following the order in which the edges have been added.
+     * @return The id of the source node of the edge.
+     */
+    public synchronized int edgeFrom(final int edge) {
+        return edges.get(edge, 0);
+    }
+
+    /**
+     * @param edge The index of an edge, following the order in which the edges have been added.
+     * @return The id of the target node of the edge.
+     */
+    public synchronized int edgeTo(final int edge) {
+        return edges.get(edge, 1);
+    }
+
+    /**
+     * @param edge The index of an edge, following the order in which the edges have been added.
+     * @return The id of the label of the edge.
+     */
+    public synchronized int edgeLabel(final int edge) {
+        return edges.get(edge, 2);
+    }
+
+    /**
+     * @param node The id of a node.
+     * @return The result of the node, as a new set.
+     */
+    public synchronized EntitySet nodeResult(final int node) {
+        return new EntitySet(table, nodes.words(node));
+    }
+
+    /**
+     * @param node The id of a node.
+     * @return The contexts of the processes of the node.
+     */
+    public synchronized String nodeContext(final int node) {
+        return contexts.text(nodes.trailingInt(node));
+    }
+
+    /**
+     * @param label The id of a label.
+     * @return The entities of the label, as a new set.
+     */
+    public synchronized EntitySet label(final int label) {
+        return new EntitySet(table, labels.words(label));
+    }
+
+    /**
+     * Removes all the nodes and edges, releasing the buffers. No edge can be buffered meanwhile.
+     */
+    public synchronized void clear() {
+        for (EdgeBuffer b = buffers.poll(); b != null; b = buffers.poll())
+            b.detached = true;
+
+        table = null;
+        nodes.clear();
+        labels.clear();
+        contexts.clear();
+        edges.clear();
+        streamedEdges = new Fingerprints();
+    }
+
+    /**
+     * The edges encoded by a thread, waiting to be interned. Each edge is encoded as its source node, its target node
+     * and its label. A node is encoded as its result followed by the length and the UTF-8 bytes of its contexts, and a
+     * set is encoded as the number of its words without the trailing empty ones, followed by the words.
+     */
+    private static final class EdgeBuffer {
+        private ByteBuffer data = ByteBuffer.allocate(1 << 12).order(ByteOrder.nativeOrder());
+        private int size;
+        private volatile boolean detached; // Set once flushed, after which the thread takes a new buffer
+
+        void add(final EntityTable table, final NodePair edge) {
+            putSet(table, edge.from());
+            putText(edge.fromContext());
+            putSet(table, edge.to());
+            putText(edge.toContext());
+            putSet(table, edge.arc());
+            ++size;
+        }
+
+        void clear() {
+            data.clear();
+            size = 0;
+        }
+
+        private void putSet(final EntityTable table, final Set<Entity> set) {
+            final long[] words = (set instanceof EntitySet entitySet && entitySet.getTable() == table
+                    ? entitySet
+                    : table.setOf(set)).words();
+
+            int len = words.length;
+            while (len > 0 && words[len - 1] == 0) --len;
+
+            reserve(4 + len * 8);
+            data.putInt(len);
+            for (int i = 0; i < len; ++i)
+                data.putLong(words[i]);
+        }
+
+        private void putText(final String text) {
+            final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+            reserve(4 + bytes.length);
+            data.putInt(bytes.length);
+            data.put(bytes);
+        }
+
+        private void reserve(final int size) {
+            if (data.remaining() >= size)
+                return;
+
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(data.position() + size, data.capacity() * 2))
+                    .order(ByteOrder.nativeOrder());
+            data = grown.put(data.flip());
+        }
+    }
+
+    /**
+     * Records interned in a byte arena, each one prefixed by its length.
+     */
+    private static final class Records {
+        private static final int CHUNK_SIZE = 1 << 20;
+
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private LongArray addresses = new LongArray(); // Chunk index in the high half, offset in the low one
+        private Index index = new Index();
+
+        int size() {
+            return addresses.size();
+        }
+
+        /**
+         * @param record The encoded record, between the position and the limit of the buffer.
+         * @return The id of the record.
+         */
+        int intern(final ByteBuffer record) {
+            final int hash = hash(record);
+
+            final int slot = index.find(hash, id -> equalsRecord(id, record));
+            if (index.idAt(slot) >= 0)
+                return index.idAt(slot);
+
+            final int id = addresses.size();
+            addresses.add(append(record));
+            index.set(slot, hash, id);
+
+            if (index.isFull())
+                index = index.grown();
+
+            return id;
+        }
+
+        private long append(final ByteBuffer record) {
+            final int size = 4 + record.remaining();
+
+            ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (chunk == null || chunk.remaining() < size) {
+                chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, size)).order(ByteOrder.nativeOrder());
+                chunks.add(chunk);
+            }
+
+            final long address = (long) (chunks.size() - 1) << 32 | chunk.position();
+            chunk.putInt(record.remaining());
+            chunk.put(record.duplicate());
+
+            return address;
+        }
+
+        private ByteBuffer record(final int id) {
+            final long address = addresses.get(id);
+            final ByteBuffer chunk = chunks.get((int) (address >>> 32));
+            final int offset = (int) address;
+
+            return chunk.slice(offset + 4, chunk.getInt(offset)).order(ByteOrder.nativeOrder());
+        }
+
+        private boolean equalsRecord(final int id, final ByteBuffer record) {
+            return record(id).equals(record);
+        }
+
+        long[] words(final int id) {
+            final ByteBuffer r = record(id);
+
+            final long[] words = new long[r.getInt()];
+            for (int i = 0; i < words.length; ++i)
+                words[i] = r.getLong();
+
+            return words;
+        }
+
+        String text(final int id) {
+            return StandardCharsets.UTF_8.decode(record(id)).toString();
+        }
+
+        int trailingInt(final int id) {
+            final ByteBuffer r = record(id);
+
+            return r.getInt(r.limit() - 4);
+        }
+
+        void clear() {
+            chunks.clear();
+            addresses = new LongArray();
+            index = new Index();
+        }
+
+        private static int hash(final ByteBuffer record) {
+            int result = 17;
+
+            for (int i = record.position(); i < record.limit(); ++i)
+                result = result * 31 + record.get(i);
+
+            return result;
+        }
+    }
+
+    /**
+     * The (from, to, label) triples of the edges, with an index for deduplicating them.
+     */
+    private static final class Edges {
+        private IntArray triples = new IntArray();
+        private Index index = new Index();
+
+        int size() {
+            return triples.size() / 3;
+        }
+
+        int get(final int edge, final int field) {
+            return triples.get(edge * 3 + field);
+        }
+
+        boolean add(final int from, final int to, final int label) {
+            int hash = 17;
+            hash = hash * 37 + from;
+            hash = hash * 37 + to;
+            hash = hash * 37 + label;
+
+            final int slot = index.find(hash, id -> get(id, 0) == from && get(id, 1) == to && get(id, 2) == label);
+            if (index.idAt(slot) >= 0)
+                return false;
+
+            final int id = size();
+            triples.add(from);
+            triples.add(to);
+            triples.add(label);
+            index.set(slot, hash, id);
+
+            if (index.isFull())
+                index = index.grown();
+
+            return true;
+        }
+
+        void clear() {
+            triples = new IntArray();
+            index = new Index();
+        }
+    }
+
+    /**
+     * An open addressing set of 64-bit fingerprints with linear probing, whose slots hold the fingerprints themselves (0
+     * marking the empty slots). Its load factor is kept under one half.
+     */
+    private static final class Fingerprints {
+        private LongArray slots = new LongArray(1 << 10);
+        private int mask = (1 << 10) - 1;
+        private int size;
+
+        /**
+         * @param fingerprint A fingerprint.
+         * @return True if the set did not already contain the fingerprint.
+         */
+        boolean add(final long fingerprint) {
+            final long fp = fingerprint == 0 ? 1 : fingerprint; // 0 marks the empty slots
+
+            int slot = (int) fp & mask;
+            for (long s = slots.get(slot); s != 0; s = slots.get(slot)) {
+                if (s == fp)
+                    return false;
+
+                slot = (slot + 1) & mask;
+            }
+
+            slots.set(slot, fp);
+            if (++size > (mask + 1) / 2)
+                grow();
+
+            return true;
+        }
+
+        private void grow() {
+            if (mask + 1 == 1 << 30)
+                throw new IllegalStateException("Too many edges for a single graph.");
+
+            final LongArray grown = new LongArray((mask + 1) * 2);
+            final int grownMask = mask * 2 + 1;
+
+            for (int i = 0; i <= mask; ++i) {
+                final long fp = slots.get(i);
+                if (fp == 0) continue;
+
+                int slot = (int) fp & grownMask;
+                while (grown.get(slot) != 0)
+                    slot = (slot + 1) & grownMask;
+
+                grown.set(slot, fp);
+            }
+
+            slots = grown;
+            mask = grownMask;
+        }
+    }
+
+    /**
+     * An open addressing hash index with linear probing from hashes to ids, whose slots hold a hash in their high half
+     * and the id plus one in their low half (0 marking the empty slots). Its load factor is kept under one half.
+     */
+    private static final class Index {
+        private final LongArray slots;
+        private final int mask;
+        private int size;
+
+        Index() {
+            this(1 << 10);
+        }
+
+        private Index(final int capacity) {
+            this.slots = new LongArray(capacity);
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * Finds the slot holding the id for which the predicate holds, or the empty slot where it would be inserted.
+         */
+        int find(final int hash, final IntPredicate matches) {
+            int slot = mix(hash) & mask;
+
+            while (true) {
+                final long s = slots.get(slot);
+                if (s == 0 || (int) (s >>> 32) == hash && matches.test((int) s - 1))
+                    return slot;
+
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        int idAt(final int slot) {
+            return (int) slots.get(slot) - 1;
+        }
+
+        void set(final int slot, final int hash, final int id) {
+            slots.set(slot, (long) hash << 32 | (id + 1) & 0xFFFFFFFFL);
+            ++size;
+        }
+
+        boolean isFull() {
+            return size > (mask + 1) / 2;
+        }
+
+        Index grown() {
+            if (mask + 1 == 1 << 30)
+                throw new IllegalStateException("Too many records for a single graph.");
+
+            final Index res = new Index((mask + 1) * 2);
+
+            for (int i = 0; i <= mask; ++i) {
+                final long s = slots.get(i);
+                if (s == 0) continue;
+
+                int slot = mix((int) (s >>> 32)) & res.mask;
+                while (res.slots.get(slot) != 0)
+                    slot = (slot + 1) & res.mask;
+
+                res.slots.set(slot, s);
+            }
+
+            res.size = size;
+            return res;
+        }
+
+        private static int mix(final int hash) {
+            final int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * A growable array of longs, split into direct buffers of at most {@link #CHUNK_LENGTH} elements (a single buffer
+     * cannot exceed 2 GB).
+     */
+    private static final class LongArray {
+        private static final int CHUNK_BITS = 16;
+        private static final int CHUNK_LENGTH = 1 << CHUNK_BITS;
+
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private int size;
+
+        LongArray() {}
+
+        /**
+         * Creates an array of the given capacity, filled with zeros. Elements are accessed by {@link #get(int)} and
+         * {@link #set(int, long)} only.
+         */
+        LongArray(final int capacity) {
+            if (capacity < CHUNK_LENGTH)
+                chunks.add(ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder()));
+            else
+                for (int i = 0; i < capacity; i += CHUNK_LENGTH)
+                    chunks.add(ByteBuffer.allocateDirect(CHUNK_LENGTH * 8).order(ByteOrder.nativeOrder()));
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(final int i) {
+            return chunks.get(i >>> CHUNK_BITS).getLong((i & (CHUNK_LENGTH - 1)) * 8);
+        }
+
+        void set(final int i, final long v) {
+            chunks.get(i >>> CHUNK_BITS).putLong((i & (CHUNK_LENGTH - 1)) * 8, v);
+        }
+
+        void add(final long v) {
+            if ((size & (CHUNK_LENGTH - 1)) == 0 && size >>> CHUNK_BITS == chunks.size())
+                chunks.add(ByteBuffer.allocateDirect(CHUNK_LENGTH * 8).order(ByteOrder.nativeOrder()));
+
+            set(size++, v);
+        }
+    }
+
+    /**
+     * A growable array of ints, split into direct buffers of {@link #CHUNK_LENGTH} elements.
+     */
+    private static final class IntArray {
+        private static final int CHUNK_BITS = 16;
+        private static final int CHUNK_LENGTH = 1 << CHUNK_BITS;
+
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(final int i) {
+            return chunks.get(i >>> CHUNK_BITS).getInt((i & (CHUNK_LENGTH - 1)) * 4);
+        }
+
+        void add(final int v) {
+            if ((size & (CHUNK_LENGTH - 1)) == 0)
+                chunks.add(ByteBuffer.allocateDirect(CHUNK_LENGTH * 4).order(ByteOrder.nativeOrder()));
+
+            chunks.get(size >>> CHUNK_BITS).putInt((size & (CHUNK_LENGTH - 1)) * 4, v);
+            ++size;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package bioresolve;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A striped visited state store keeping its slots in direct buffers, outside of the heap. Large stores thus neither
+ * weigh on the garbage collector nor count towards the maximum heap size (they count towards the maximum direct memory
+ * instead).
+ */
+public class OffHeapVisitedStateStore extends StripedVisitedStateStore {
+    /**
+     * @param expectedSize The number of states expected to be stored. The store grows past it if needed.
+     * @throws IllegalArgumentException If the expected size is negative.
+     */
+    public OffHeapVisitedStateStore(final long expectedSize) throws IllegalArgumentException {
+        super(expectedSize);
+    }
+
+    @Override
+    protected Stripe newStripe(final int capacity) {
+        if (capacity > Integer.MAX_VALUE / 16)
+            throw new IllegalArgumentException("Too many states for a single stripe.");
+
+        return new BufferStripe(capacity);
+    }
+
+    /**
+     * Stores each fingerprint next to its value.
+     */
+    private static final class BufferStripe extends Stripe {
+        private final LongBuffer slots;
+        private final int capacity;
+
+        private BufferStripe(final int capacity) {
+            this.slots = ByteBuffer.allocateDirect(capacity * 16).order(ByteOrder.nativeOrder()).asLongBuffer();
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected int capacity() {
+            return capacity;
+        }
+
+        @Override
+        protected long key(final int slot) {
+            return slots.get(slot * 2);
+        }
+
+        @Override
+        protected long value(final int slot) {
+            return slots.get(slot * 2 + 1);
+        }
+
+        @Override
+        protected void set(final int slot, final long key, final long value) {
+            slots.put(slot * 2, key);
+            slots.put(slot * 2 + 1, value);
+        }
+    }
+}
@@ -9,10 +9,14 @@ public class ProcessManager {
     private final ReactionSystem rs;
     private final List<InteractiveProcess> parallelProcesses;
 
-    private final List<NodePair> processGraph;
-
     private final int managerId;
 
+    private final int resultWords; // Number of words of the results in the state keys
+    private final long[] stateKey;
+
+    private ReactionEvaluator evaluator; // Created on the first step, if the evaluation mode keeps a state between steps
+    private boolean evaluatorCreated;
+
     /**
      * @param managerId The unique id for this manager.
      * @param rs The reaction system.
@@ -37,7 +41,7 @@ public class ProcessManager {
         // Sanity checks
         if (check) {
             for (final Context ctx : declaredContexts)
-                checkEntitiesBelongToRS(rs, ctx); // Checks the environment
+                checkEntitiesBelongToRS(rs, ctx.getContext()); // Checks the environment
             for (final InteractiveProcess p : parallelProcesses)
                 checkEntitiesBelongToRS(rs, p.getContextSequence()); // Checks each process' context sequence
         }
@@ -45,20 +49,22 @@ public class ProcessManager {
         this.rs = rs;
         this.parallelProcesses = parallelProcesses;
         this.managerId = managerId;
-        this.processGraph = new ArrayList<>();
+
+        // The results only contain products of the reactions, which are interned when building the reaction system
+        this.resultWords = rs.getEntityTable().wordCount();
+        this.stateKey = new long[resultWords + 2 * parallelProcesses.size()];
     }
 
     /**
-     * Checks if all the entities of the provided context belong to the given reaction system.
+     * Checks if all the entities of the provided context components belong to the given reaction system.
      * @param rs The reaction system.
-     * @param context The context.
+     * @param components The components of a context.
      * @throws IllegalArgumentException If at least one entity doesn't belong to the RS.
      */
-    private void checkEntitiesBelongToRS(final ReactionSystem rs, final Context context) throws IllegalArgumentException {
+    private void checkEntitiesBelongToRS(final ReactionSystem rs, final Iterable<ContextComponent> components) throws IllegalArgumentException {
         final Set<Entity> entities = rs.getEntities();
 
-        final List<ContextComponent> relativeContext = context.getContext();
-        for (ContextComponent comp : relativeContext) {
+        for (ContextComponent comp : components) {
             final List<Entity> entitySequence = comp.getEntitiesSequence();
 
             for (final Entity e : entitySequence)
@@ -80,20 +86,22 @@ public class ProcessManager {
      * of each process (i.e., the union of their <i>C<sub>i</sub></i> and <i>D<sub>i-1</sub></i> sets) are united with those of the others.
      * Then, this cumulative set is computed against the reaction system, in which the reactions have been defined.
      * Finally, the resulting entities are pushed to each process, advancing its internal <i>D<sub>i</sub></i>.<br>
-     * As a side effect, a {@link NodePair pair of nodes} is generated from this computation and pushed to the global
-     * cache managed by the coordinator. This cache acts both as the mean to construct the DOT graph and as the computations
-     * cache, stopping if the state has already been reached.
+     * As a side effect, a {@link NodePair pair of nodes} is generated from this computation and added to the graph of
+     * the coordinator, and the reached state is marked as visited, stopping if it has already been reached.
+     * The manager also stops when its processes reach the {@link ManagersCoordinator#setDepthBound(int) depth bound}.
      * @return A boolean indicating whether to continue or not (that is, if the processes have not finished yet).
      */
-    private boolean compute() {
-        final Set<Entity> mergedWSet = new HashSet<>();
+    public boolean compute() {
+        final EntityTable table = rs.getEntityTable();
+        final Set<Entity> mergedWSet = table.newSet();
 
         int endedProcessesNumber = 0; // Keep track of the number of processes which have reached 'nil'
 
-        StringBuilder fromContext = new StringBuilder();
+        final String[] contexts = new String[parallelProcesses.size()];
 
-        for (final InteractiveProcess p : parallelProcesses) {
-            fromContext.append(" | ").append(p.getRemainingContextAsString());
+        for (int i = 0; i < contexts.length; ++i) {
+            final InteractiveProcess p = parallelProcesses.get(i);
+            contexts[i] = p.getRemainingContextAsString();
 
             final Set<Entity> processResult = p.advanceStateSequence();
 
@@ -103,50 +111,61 @@ public class ProcessManager {
         if (endedProcessesNumber == parallelProcesses.size()) // Return if all the processes have reached their last point
             return false;
 
-        final Set<Entity> cumulativeResult = rs.computeResults(mergedWSet); // cumulativeResult = Di+1
+        String fromContext = joinContexts(contexts);
+
+        if (!evaluatorCreated) {
+            evaluator = rs.newSequenceEvaluator();
+            evaluatorCreated = true;
+        }
+
+        final EntitySet cumulativeResult = rs.computeResults(mergedWSet, evaluator); // cumulativeResult = Di+1
 
         if (BioResolve.OUT) System.out.println(getResultString(cumulativeResult));
 
-        final Set<Entity> from = new HashSet<>(); // Di
-        final Set<Entity> arc = new HashSet<>(); // Ci U Di
-        final StringBuilder toContext = new StringBuilder();
+        final Set<Entity> from = table.newSet(); // Di
+        final Set<Entity> arc = table.newSet(); // Ci U Di
 
-        for (final InteractiveProcess parallelProcess : parallelProcesses) {
+        for (int i = 0; i < contexts.length; ++i) {
+            final InteractiveProcess parallelProcess = parallelProcesses.get(i);
             from.addAll(parallelProcess.getCurrentResult());
             arc.addAll(parallelProcess.getLastContext());
 
             parallelProcess.pushResult(cumulativeResult);
 
-            toContext.append(" | ").append(parallelProcess.getRemainingContextAsString());
+            contexts[i] = parallelProcess.getRemainingContextAsString();
         }
 
+        final String toContext = joinContexts(contexts);
+
         arc.addAll(from);
 
-        if (parallelProcesses.get(0).getResultSequence().size() == 2) { // This corresponds to being the initial node // TODO: parallel?
+        if (parallelProcesses.get(0).getSteps() == 1) { // This corresponds to being the initial node // TODO: parallel?
             from.add(new Entity("-"));
 
-            fromContext = new StringBuilder();
-            for (final InteractiveProcess p : parallelProcesses)
+            for (int i = 0; i < contexts.length; ++i)
                 // Since there are as many parallel processes as there are variables in the environment, it is ok to use the same index
-                fromContext.append(" | ").append(p.getInitialContext());
-        } else if (parallelProcesses.get(0).getContextSequenceIndex() == 1 && !parallelProcesses.get(0).getStemsFrom().isEmpty()) { // TODO: parallel?
-            fromContext = new StringBuilder();
-            for (final InteractiveProcess p : parallelProcesses)
-                fromContext.append(" | ").append(p.getStemsFrom());
+                contexts[i] = parallelProcesses.get(i).getInitialContext().toString();
+            fromContext = joinContexts(contexts);
+        } else if (stemsFromLabelsNode()) {
+            for (int i = 0; i < contexts.length; ++i)
+                contexts[i] = parallelProcesses.get(i).getStemsFrom();
+            fromContext = joinContexts(contexts);
         }
 
-        final NodePair node = new NodePair(from, fromContext.toString(), cumulativeResult, toContext.toString(), arc);
-
-        processGraph.add(node);
+        final ManagersCoordinator coordinator = ManagersCoordinator.getInstance();
+        coordinator.addEdge(new NodePair(from, fromContext, cumulativeResult, toContext, arc));
 
         if (cumulativeResult.isEmpty()) return false;
 
-        if (ManagersCoordinator.getInstance().getCachedManagers().contains(node)) {
+        if (!coordinator.markVisited(fingerprint(cumulativeResult), managerId)) {
             if (BioResolve.OUT) System.out.println("[Warning] All results have already been computed. Stopping.");
             return false;
         }
 
-        ManagersCoordinator.getInstance().getCachedManagers().add(node);
+        if (coordinator.reachedDepthBound(parallelProcesses.get(0).getSteps())) {
+            if (BioResolve.OUT) System.out.println("[Warning] The depth bound has been reached. Stopping.");
+            return false;
+        }
 
         return true;
     }
@@ -208,8 +227,89 @@ public class ProcessManager {
         return parallelProcesses;
     }
 
-    public List<NodePair> getProcessGraph() {
-        return processGraph;
+    public int getManagerId() {
+        return managerId;
+    }
+
+    /**
+     * Checks whether the source node of the last step is labeled with the variables from which the processes stem. This
+     * is decided by the first process or, with {@link ManagersCoordinator#setSymmetryReduction(boolean) symmetry
+     * reduction}, by any of them, since the order of the processes of the managers reaching a state is arbitrary.
+     * @return True if the node is labeled with the variables.
+     */
+    private boolean stemsFromLabelsNode() {
+        if (!ManagersCoordinator.isSymmetryReduction()) {
+            final InteractiveProcess first = parallelProcesses.get(0);
+            return first.lastContextStartedContext() && !first.getStemsFrom().isEmpty();
+        }
+
+        for (final InteractiveProcess p : parallelProcesses)
+            if (p.lastContextStartedContext() && !p.getStemsFrom().isEmpty())
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Joins the contexts of the processes into the context of a node. With {@link
+     * ManagersCoordinator#setSymmetryReduction(boolean) symmetry reduction}, the contexts are sorted (in place), so that
+     * the permutations of the same processes label the same node.
+     * @param contexts The contexts of the processes.
+     * @return The context of the node.
+     */
+    private static String joinContexts(final String[] contexts) {
+        if (ManagersCoordinator.isSymmetryReduction())
+            Arrays.sort(contexts);
+
+        final StringBuilder s = new StringBuilder();
+        for (final String c : contexts)
+            s.append(" | ").append(c);
+
+        return s.toString();
+    }
+
+    /**
+     * Computes the fingerprint of the state reached by this manager. The state is encoded into a fixed-width key made of
+     * the words of the current result, followed by the {@link InteractiveProcess#encodePosition(long[], int) position}
+     * of each process. With {@link ManagersCoordinator#setSymmetryReduction(boolean) symmetry reduction}, the positions
+     * are sorted, so that the states only differing by the order of the processes share the same fingerprint.
+     * @param result The current result.
+     * @return The fingerprint.
+     */
+    private long fingerprint(final EntitySet result) {
+        final long[] words = result.words();
+        final int len = Math.min(words.length, resultWords);
+
+        System.arraycopy(words, 0, stateKey, 0, len);
+        Arrays.fill(stateKey, len, resultWords, 0);
+
+        for (int i = 0; i < parallelProcesses.size(); ++i)
+            parallelProcesses.get(i).encodePosition(stateKey, resultWords + 2 * i);
+
+        if (ManagersCoordinator.isSymmetryReduction())
+            sortPositions();
+
+        return StateFingerprint.of(stateKey);
+    }
+
+    /**
+     * Sorts the positions of the processes in the state key, each one being a pair of longs, by insertion (the processes
+     * are few).
+     */
+    private void sortPositions() {
+        for (int i = resultWords + 2; i < stateKey.length; i += 2) {
+            final long first = stateKey[i];
+            final long second = stateKey[i + 1];
+
+            int j = i - 2;
+            for (; j >= resultWords && (stateKey[j] > first || stateKey[j] == first && stateKey[j + 1] > second); j -= 2) {
+                stateKey[j + 2] = stateKey[j];
+                stateKey[j + 3] = stateKey[j + 1];
+            }
+
+            stateKey[j + 2] = first;
+            stateKey[j + 3] = second;
+        }
     }
 
     @Override
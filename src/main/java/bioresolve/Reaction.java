@@ -1,5 +1,6 @@
 package bioresolve;
 
+import java.io.StringReader;
 import java.util.*;
 
 /**
@@ -13,13 +14,13 @@ public class Reaction {
 
     /**
      * @param reactants The set of reactants.
-     * @param inhibitors The set of inhibitors.
+     * @param inhibitors The set of inhibitors, which can be empty.
      * @param products The set of products.
-     * @throws IllegalArgumentException
+     * @throws IllegalArgumentException If there are no reactants or no products.
      */
     public Reaction(Set<Entity> reactants, Set<Entity> inhibitors, Set<Entity> products) throws IllegalArgumentException {
-        if (reactants.isEmpty() || inhibitors.isEmpty() || products.isEmpty())
-            throw new IllegalArgumentException("The provided arguments have to be non-empty sets of entities");
+        if (reactants.isEmpty() || products.isEmpty())
+            throw new IllegalArgumentException("The reactants and the products have to be non-empty sets of entities");
 
         this.reactants = reactants;
         this.inhibitors = inhibitors;
@@ -32,70 +33,63 @@ public class Reaction {
      * @return The products of the reaction if all the reactants and no inhibitors are present, an empty result otherwise.
      */
     public Set<Entity> computeResult(final Set<Entity> wSet) {
-        for (final Entity reactant : reactants)
-            if (!wSet.contains(reactant))
-                return Collections.emptySet();
-
-        for (final Entity inhibitor : inhibitors)
-            if (wSet.contains(inhibitor))
+        if (wSet instanceof EntitySet w
+                && reactants instanceof EntitySet r && r.getTable() == w.getTable()
+                && inhibitors instanceof EntitySet i && i.getTable() == w.getTable()) {
+            if (!w.containsAll(r) || w.intersects(i)) // Word by word checks
                 return Collections.emptySet();
+        } else {
+            for (final Entity reactant : reactants)
+                if (!wSet.contains(reactant))
+                    return Collections.emptySet();
+
+            for (final Entity inhibitor : inhibitors)
+                if (wSet.contains(inhibitor))
+                    return Collections.emptySet();
+        }
 
         if (BioResolve.OUT) printReaction();
 
         return products;
     }
 
+    /**
+     * Creates a copy of this reaction whose sets are backed by the given entity table.
+     * @param table The interned entity table of the reaction system.
+     * @return The new reaction.
+     */
+    public Reaction bind(final EntityTable table) {
+        return new Reaction(table.setOf(reactants), table.setOf(inhibitors), table.setOf(products));
+    }
+
     /**
      * Checks that the reaction string is correct.<br>
-     * This has to be called before both entity extrapolation and reactions parsing
+     * This has to be called before both entity extrapolation and reactions parsing. Prefer
+     * {@link ReactionParser#parseReactionSystem(String)}, which validates and parses the reactions in a single pass.
      * @param reactions The reactions string.
      * @throws IllegalArgumentException If the reaction is wrongly specified.
      */
     public static void checkReactionStringConformity(final String reactions) throws IllegalArgumentException {
-        final String[] reacs = reactions.trim().split("(?!\\)\\s*),\\s*(?=\\()");
-
-        final String reactionForm = "\\(\\[(\\s*\\w+\\s*(,\\s*\\w+\\s*)*)?\\]\\s*," +
-                "\\s*\\[(\\s*\\w+\\s*(,\\s*\\w+\\s*)*)?\\]\\s*," +
-                "\\s*\\[(\\s*\\w+\\s*(,\\s*\\w+\\s*)*)?\\]\\s*\\)";
-
-        for (final String reaction : reacs)
-            if (!reaction.matches(reactionForm))
-                throw new IllegalArgumentException("The reaction " + reaction + " does not respect the form ([a,b], [c,d], [e,f]).");
+        new ReactionParser(new StringReader(reactions)).parse();
     }
 
     /**
      * Parses the string containing all the reactions, creating a reaction for each.
      * @param reactions The reactions string.
      * @return The set of reactions which have been created.
+     * @throws IllegalArgumentException If the reaction is wrongly specified.
      */
-    public static Set<Reaction> parseReactions(final String reactions) {
-        final Set<Reaction> res = new HashSet<>();
-
-        final String[] reacs = reactions.trim().split("(?!\\)\\s*),\\s*(?=\\()");
-
-        for (final String reaction : reacs) {
-            final String[] reactionComponents = reaction.substring(1, reaction.length() - 1).split("(?!])\\s*,\\s*(?=\\[)");
-
-            final String[] reactants = reactionComponents[0].substring(1, reactionComponents[0].length() - 1).split(",");
-            final String[] inhibitors = reactionComponents[1].substring(1, reactionComponents[1].length() - 1).split(",");
-            final String[] products = reactionComponents[2].substring(1, reactionComponents[2].length() - 1).split(",");
-
-            final Set<Entity> reactantsSet = Entity.createSetFromStringsArr(reactants);
-            final Set<Entity> inhibitorsSet = Entity.createSetFromStringsArr(inhibitors);
-            final Set<Entity> productsSet = Entity.createSetFromStringsArr(products);
-
-            final Reaction parsedReaction = new Reaction(reactantsSet, inhibitorsSet, productsSet);
-
-            res.add(parsedReaction);
-        }
+    public static Set<Reaction> parseReactions(final String reactions) throws IllegalArgumentException {
+        final ReactionParser parser = new ReactionParser(new StringReader(reactions));
+        parser.parse();
 
-        return res;
+        return parser.getReactions();
     }
 
     /**
      * Prints the activated reaction.
      */
-    private void printReaction() {
+    void printReaction() {
         System.out.print("Activated reaction: [");
         int i = 0;
         int len = reactants.size() - 1;
@@ -0,0 +1,42 @@
+package bioresolve;
+
+/**
+ * The abstract class defining an evaluator of the compiled {@link ReactionMasks reactions} of a system.<br>
+ * An evaluator owns reusable buffers, hence an instance must not be shared between threads.
+ */
+public abstract class ReactionEvaluator {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    protected final ReactionMasks masks;
+
+    /**
+     * @param masks The compiled reactions.
+     */
+    protected ReactionEvaluator(final ReactionMasks masks) {
+        this.masks = masks;
+    }
+
+    /**
+     * This method shall compute the union of the products of all the reactions enabled by the given set.
+     * @param wSet The set on which to compute the reactions.
+     * @return A new set containing the results.
+     */
+    public abstract EntitySet computeResults(final EntitySet wSet);
+
+    /**
+     * Prints the reaction having the given index if the output is enabled.
+     * @param r The index of the reaction.
+     */
+    protected void reactionActivated(final int r) {
+        if (BioResolve.OUT) masks.reactions[r].printReaction();
+    }
+
+    /**
+     * Checks whether the incubating Vector API has been added to the running JVM
+     * (i.e. <i>--add-modules jdk.incubator.vector</i>).
+     * @return True if the {@link VectorReactionEvaluator} can be used.
+     */
+    public static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+}
@@ -0,0 +1,137 @@
+package bioresolve;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The compiled form of the reactions of a system: each reaction is translated into a reactant mask, an inhibitor mask
+ * and a product mask over the ids of the system's {@link EntityTable}.<br>
+ * The masks of the reaction <i>r</i> are stored contiguously at the offset <i>r * words</i> of each array.
+ */
+public class ReactionMasks {
+    final EntityTable table;
+    final Reaction[] reactions;
+    final int words;
+
+    final long[] reactants;
+    final long[] inhibitors;
+    final long[] products;
+
+    /**
+     * @param table The interned entity table of the reaction system.
+     * @param reactions The reactions to compile.
+     */
+    public ReactionMasks(final EntityTable table, final Collection<Reaction> reactions) {
+        this.table = table;
+        this.reactions = reactions.toArray(new Reaction[0]);
+        this.words = table.wordCount();
+
+        this.reactants = new long[this.reactions.length * words];
+        this.inhibitors = new long[this.reactions.length * words];
+        this.products = new long[this.reactions.length * words];
+
+        for (int r = 0; r < this.reactions.length; ++r) {
+            final Reaction reaction = this.reactions[r];
+            copyMask(table.setOf(reaction.getReactants()), reactants, r * words);
+            copyMask(table.setOf(reaction.getInhibitors()), inhibitors, r * words);
+            copyMask(table.setOf(reaction.getProducts()), products, r * words);
+        }
+    }
+
+    /**
+     * Adopts masks which have already been compiled (e.g. read back from a {@link BinaryModel}), building the reactions
+     * out of them.
+     * @param table The interned entity table the masks refer to.
+     * @param words The number of words of each mask.
+     * @param reactants The reactant masks.
+     * @param inhibitors The inhibitor masks.
+     * @param products The product masks.
+     * @throws IllegalArgumentException If the masks do not have the same length, or if they are wider than the table.
+     */
+    ReactionMasks(
+            final EntityTable table,
+            final int words,
+            final long[] reactants,
+            final long[] inhibitors,
+            final long[] products
+    ) throws IllegalArgumentException {
+        this.table = table;
+        this.words = words;
+
+        if (words < 0 || words > table.wordCount()
+                || reactants.length != inhibitors.length || reactants.length != products.length
+                || words == 0 && reactants.length > 0 || words > 0 && reactants.length % words != 0)
+            throw new IllegalArgumentException("The masks do not match the entity table.");
+
+        this.reactants = reactants;
+        this.inhibitors = inhibitors;
+        this.products = products;
+
+        this.reactions = new Reaction[words == 0 ? 0 : reactants.length / words];
+        for (int r = 0; r < reactions.length; ++r)
+            reactions[r] = new Reaction(maskSet(reactants, r), maskSet(inhibitors, r), maskSet(products, r));
+    }
+
+    private EntitySet maskSet(final long[] mask, final int r) {
+        return new EntitySet(table, Arrays.copyOfRange(mask, r * words, (r + 1) * words));
+    }
+
+    private void copyMask(final EntitySet set, final long[] dest, final int offset) {
+        final long[] src = set.words();
+        System.arraycopy(src, 0, dest, offset, Math.min(src.length, words));
+    }
+
+    /**
+     * Checks whether a reaction is enabled by a set, i.e. all its reactants and none of its inhibitors are present.
+     * @param w The words of the set, as wide as the masks.
+     * @param r The index of the reaction.
+     * @return True if the reaction is enabled.
+     */
+    boolean isEnabled(final long[] w, final int r) {
+        for (int k = 0, base = r * words; k < words; ++k, ++base)
+            if ((w[k] & reactants[base]) != reactants[base] || (w[k] & inhibitors[base]) != 0)
+                return false;
+
+        return true;
+    }
+
+    /**
+     * ORs the products of a reaction into an accumulator.
+     * @param r The index of the reaction.
+     * @param accumulator The accumulator, as wide as the masks.
+     */
+    void addProducts(final int r, final long[] accumulator) {
+        for (int k = 0, base = r * words; k < words; ++k, ++base)
+            accumulator[k] |= products[base];
+    }
+
+    /**
+     * Copies the words of a set into a buffer as wide as the masks, padding with zeroes if the set is narrower.
+     * @param set The set to copy.
+     * @param dest The buffer, having length {@link #words}.
+     */
+    void load(final EntitySet set, final long[] dest) {
+        final long[] src = set.words();
+        final int len = Math.min(src.length, words);
+
+        System.arraycopy(src, 0, dest, 0, len);
+        for (int i = len; i < words; ++i)
+            dest[i] = 0;
+    }
+
+    /**
+     * Creates a new set out of the words of an accumulator.
+     * @param accumulator The accumulator, which is copied.
+     * @return The new set.
+     */
+    EntitySet toSet(final long[] accumulator) {
+        return new EntitySet(table, accumulator.clone());
+    }
+
+    /**
+     * @return The number of compiled reactions.
+     */
+    public int size() {
+        return reactions.length;
+    }
+}
@@ -0,0 +1,117 @@
+package bioresolve;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.*;
+
+/**
+ * Parses a list of reactions of the form <i>([a,b],[c],[d]), ([e],[f],[g,h]), ...</i> in a single pass.<br>
+ * While reading, the reactions are validated, their entities are interned (so that each symbol is represented by a
+ * single {@link Entity} instance), and the reactions are built. Errors are reported with their line and column.
+ */
+public class ReactionParser {
+    private final ModelScanner scanner;
+
+    private final Map<String, Entity> entities = new LinkedHashMap<>();
+    private final Set<Reaction> reactions = new HashSet<>();
+
+    /**
+     * @param reader The source of the reactions.
+     */
+    public ReactionParser(final Reader reader) {
+        this.scanner = new ModelScanner(reader);
+    }
+
+    /**
+     * Parses a string of reactions and builds the reaction system made of them and of their entities.
+     * @param reactions The reactions string.
+     * @return The reaction system.
+     * @throws ModelParseException If the reactions are wrongly specified.
+     */
+    public static ReactionSystem parseReactionSystem(final String reactions) throws ModelParseException {
+        final ReactionParser parser = new ReactionParser(new StringReader(reactions));
+        parser.parse();
+
+        return parser.toReactionSystem();
+    }
+
+    /**
+     * Parses the whole input.
+     * @throws ModelParseException If a reaction is wrongly specified.
+     */
+    public void parse() throws ModelParseException {
+        do reactions.add(parseReaction());
+        while (scanner.accept(','));
+
+        if (!scanner.atEnd())
+            throw scanner.error("expected ',' or the end of the reactions but found " + scanner.describeNext());
+    }
+
+    /**
+     * Parses a single reaction, i.e. <i>([reactants], [inhibitors], [products])</i>. The inhibitors can be empty,
+     * i.e. <i>[]</i>.
+     * @return The reaction.
+     */
+    private Reaction parseReaction() {
+        scanner.expect('(');
+        final Set<Entity> reactants = parseEntities("reactant", false);
+        scanner.expect(',');
+        final Set<Entity> inhibitors = parseEntities("inhibitor", true);
+        scanner.expect(',');
+        final Set<Entity> products = parseEntities("product", false);
+        scanner.expect(')');
+
+        return new Reaction(reactants, inhibitors, products);
+    }
+
+    /**
+     * Parses a list of entities between square brackets.
+     * @param what The kind of the entities, used in the error messages.
+     * @param canBeEmpty True if the list can be empty.
+     * @return The set of interned entities.
+     * @throws ModelParseException If the list is empty and cannot be.
+     */
+    private Set<Entity> parseEntities(final String what, final boolean canBeEmpty) throws ModelParseException {
+        scanner.skipWhitespace();
+        final int line = scanner.getLine();
+        final int column = scanner.getColumn();
+
+        scanner.expect('[');
+
+        final Set<Entity> res = new HashSet<>();
+        if (scanner.accept(']')) {
+            if (!canBeEmpty)
+                throw new ModelParseException("a reaction needs at least one " + what, line, column);
+
+            return res;
+        }
+
+        do res.add(entities.computeIfAbsent(scanner.identifier(what), Entity::new));
+        while (scanner.accept(','));
+
+        scanner.expect(']');
+
+        return res;
+    }
+
+    /**
+     * @return The entities found in the parsed reactions, in order of appearance.
+     */
+    public Set<Entity> getEntities() {
+        return new LinkedHashSet<>(entities.values());
+    }
+
+    /**
+     * @return The parsed reactions.
+     */
+    public Set<Reaction> getReactions() {
+        return reactions;
+    }
+
+    /**
+     * @return The reaction system made of the parsed reactions and entities.
+     */
+    public ReactionSystem toReactionSystem() {
+        return new ReactionSystem(getEntities(), reactions);
+    }
+}
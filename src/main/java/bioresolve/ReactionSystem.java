@@ -1,5 +1,6 @@
 package bioresolve;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -7,24 +8,71 @@ import java.util.Set;
  * Represents the reaction system, i.e. the set of entities together with the set of reactions.
  * @author caba
  */
-public class ReactionSystem {
+public final class ReactionSystem {
     private final Set<Entity> entities;
     private final Set<Reaction> reactions;
+    private final EntityTable entityTable;
+    private final ReactionMasks reactionMasks;
+
+    private EvaluationMode evaluationMode;
+    private ThreadLocal<ReactionEvaluator> evaluators; // Evaluators own their buffers, thus each thread gets its own
+    private StepCache stepCache;
 
     /**
      * @param entities The set of entities.
-     * @param reactions The set of reactions.
+     * @param reactions The set of reactions. They are bound to the interned entity table of the system, hence the
+     *                  reactions stored are copies of the provided ones.
      * @throws IllegalArgumentException If any of the reaction entities does not belong to the entity set.
      */
     public ReactionSystem(final Set<Entity> entities, final Set<Reaction> reactions) throws IllegalArgumentException {
         this.entities = entities;
-        
+        this.entityTable = new EntityTable(entities);
+        this.reactions = new HashSet<>(reactions.size() * 2);
+
         for (final Reaction reaction : reactions) {
             checkEntitySetBelonging(reaction.getReactants());
             checkEntitySetBelonging(reaction.getInhibitors());
             checkEntitySetBelonging(reaction.getProducts());
+
+            this.reactions.add(reaction.bind(entityTable));
         }
-        this.reactions = reactions;
+
+        this.reactionMasks = new ReactionMasks(entityTable, this.reactions);
+        setEvaluationMode(EvaluationMode.COMPILED);
+    }
+
+    private ReactionSystem(final Set<Entity> entities, final EntityTable entityTable, final ReactionMasks reactionMasks) {
+        this.entities = entities;
+        this.entityTable = entityTable;
+        this.reactionMasks = reactionMasks;
+        this.reactions = new HashSet<>(Arrays.asList(reactionMasks.reactions));
+
+        setEvaluationMode(EvaluationMode.COMPILED);
+    }
+
+    /**
+     * Creates a reaction system out of its compiled form (e.g. read back from a {@link BinaryModel}), without binding
+     * and compiling its reactions again.
+     * @param entities The set of entities, which have to be interned in the table.
+     * @param entityTable The entity table.
+     * @param reactionMasks The compiled reactions, over the ids of the table.
+     * @return The reaction system.
+     * @throws IllegalArgumentException If an entity has not been interned in the table, or if the masks refer to
+     * another table.
+     */
+    public static ReactionSystem compiled(
+            final Set<Entity> entities,
+            final EntityTable entityTable,
+            final ReactionMasks reactionMasks
+    ) throws IllegalArgumentException {
+        if (reactionMasks.table != entityTable)
+            throw new IllegalArgumentException("The reactions are compiled over another entity table.");
+
+        for (final Entity e : entities)
+            if (entityTable.idOf(e) < 0)
+                throw new IllegalArgumentException("The entity " + e + " does not belong to the entity table.");
+
+        return new ReactionSystem(entities, entityTable, reactionMasks);
     }
 
     /**
@@ -39,16 +87,123 @@ public class ReactionSystem {
         }
     }
     
-    public Set<Entity> computeResults(final Set<Entity> wSet) {
-        final Set<Entity> res = new HashSet<>();
+    /**
+     * Computes the results of all the reactions on the given set. If a {@link StepCache} has been set, the results are
+     * looked up there first (and the activated reactions are not printed on hits).
+     * @param wSet The set on which to compute the reactions.
+     * @return The union of the products of the enabled reactions. It must not be modified if the cache is enabled.
+     */
+    public EntitySet computeResults(final Set<Entity> wSet) {
+        final EntitySet w = entityTable.setOf(wSet);
+
+        if (stepCache != null)
+            return stepCache.computeIfAbsent(w, this::evaluate);
+
+        return evaluate(w);
+    }
+
+    /**
+     * Computes the results of all the reactions on the given set, as {@link #computeResults(Set)}, with an evaluator
+     * dedicated to the sequence of computations which the set belongs to.
+     * @param wSet The set on which to compute the reactions.
+     * @param evaluator An evaluator created by {@link #newSequenceEvaluator()}, or null for the evaluator of the
+     *                  current thread.
+     * @return The union of the products of the enabled reactions. It must not be modified if the cache is enabled.
+     */
+    public EntitySet computeResults(final Set<Entity> wSet, final ReactionEvaluator evaluator) {
+        if (evaluator == null)
+            return computeResults(wSet);
+
+        final EntitySet w = entityTable.setOf(wSet);
+
+        if (stepCache != null)
+            return stepCache.computeIfAbsent(w, evaluator::computeResults);
+
+        return evaluator.computeResults(w);
+    }
+
+    /**
+     * Evaluates the reactions on the given set following the current evaluation mode.
+     * @param w The set on which to compute the reactions.
+     * @return The union of the products of the enabled reactions.
+     */
+    private EntitySet evaluate(final EntitySet w) {
+        if (evaluationMode != EvaluationMode.INTERPRETED)
+            return evaluators.get().computeResults(w);
+
+        final EntitySet res = entityTable.newSet();
         
         for (final Reaction reaction : reactions)
-            res.addAll(reaction.computeResult(wSet));
+            res.addAll(reaction.computeResult(w));
         
         return res;
     }
+
+    /**
+     * Creates a new evaluator of the system's compiled reactions following the current evaluation mode.
+     * @return The new evaluator, or null if the reactions are interpreted.
+     */
+    public ReactionEvaluator newEvaluator() {
+        return switch (evaluationMode) {
+            case INTERPRETED -> null;
+            case COMPILED -> new ScalarReactionEvaluator(reactionMasks);
+            case VECTOR -> ReactionEvaluator.isVectorApiAvailable()
+                    ? new VectorReactionEvaluator(reactionMasks)
+                    : new ScalarReactionEvaluator(reactionMasks);
+            case INDEXED -> new IndexedReactionEvaluator(reactionMasks);
+            case INCREMENTAL -> new IncrementalReactionEvaluator(reactionMasks);
+        };
+    }
+
+    /**
+     * Creates an evaluator for a single sequence of computations (e.g. the steps of a manager), if the evaluation mode
+     * keeps a state between them: the {@link IncrementalReactionEvaluator incremental evaluator} only gains from
+     * consecutive sets which differ a little, which is not the case for the sets evaluated by a thread interleaving
+     * many sequences.
+     * @return The new evaluator, or null if the evaluators of the threads can be shared by the sequences.
+     */
+    public ReactionEvaluator newSequenceEvaluator() {
+        return evaluationMode == EvaluationMode.INCREMENTAL ? new IncrementalReactionEvaluator(reactionMasks) : null;
+    }
+
+    /**
+     * Sets the strategy used by {@link #computeResults(Set) computeResults} for evaluating the reactions.
+     * @param mode The evaluation mode.
+     */
+    public void setEvaluationMode(final EvaluationMode mode) {
+        this.evaluationMode = mode;
+        this.evaluators = ThreadLocal.withInitial(this::newEvaluator);
+    }
+
+    public EvaluationMode getEvaluationMode() {
+        return evaluationMode;
+    }
+
+    /**
+     * Sets the cache shared by all the computations performed on this system.
+     * @param stepCache The cache, or null for disabling caching.
+     */
+    public void setStepCache(final StepCache stepCache) {
+        this.stepCache = stepCache;
+    }
+
+    public StepCache getStepCache() {
+        return stepCache;
+    }
     
     public Set<Entity> getEntities() {
         return this.entities;
     }
+
+    public Set<Reaction> getReactions() {
+        return this.reactions;
+    }
+
+    public EntityTable getEntityTable() {
+        return this.entityTable;
+    }
+
+    public ReactionMasks getReactionMasks() {
+        return this.reactionMasks;
+    }
 }
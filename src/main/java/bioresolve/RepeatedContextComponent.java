@@ -6,60 +6,78 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * Represents a component which is repeated (i.e. <i><10, {a,b}></i>).
+ * Represents a component which is repeated (i.e. <i><10, {a,b}></i>).<br>
+ * The repetitions are never materialized: the component only stores the counter and the repeated component, and is
+ * unrolled lazily one repetition at a time while computing.
  * @author caba
  */
 public class RepeatedContextComponent extends ContextComponent {
-    private final Context sequence;
+    private final int n;
+    private final ContextComponent component;
+    private final int hash;
 
     /**
      * @param n The number of repetitions.
      * @param c The context component to repeat.
+     * @throws IllegalArgumentException If the number of repetitions is negative.
+     * @see ContextFactory#repeated(int, ContextComponent)
      */
-    public RepeatedContextComponent(final int n, final ContextComponent c) {
-        List<ContextComponent> sequence = new ArrayList<>(n);
-        for (int i = 0; i < n; ++i)
-            sequence.add(c);
-        
-        this.sequence = new Context(sequence);
+    public RepeatedContextComponent(final int n, final ContextComponent c) throws IllegalArgumentException {
+        if (n < 0)
+            throw new IllegalArgumentException("The number of repetitions cannot be negative");
+
+        this.n = n;
+        this.component = c;
+
+        int result = 17;
+
+        result = result * 37 + n;
+        result = result * 37 + c.hashCode();
+
+        this.hash = result;
     }
-    
-    public Context getRepeatedSequence() {
-        return sequence;
+
+    public int getRepetitions() {
+        return n;
+    }
+
+    public ContextComponent getRepeatedComponent() {
+        return component;
+    }
+
+    /**
+     * Unrolls the first repetition, i.e. returns the context made of the repeated component followed by the remaining
+     * repetitions.
+     * @return The unrolled context, which is empty if there are no repetitions.
+     */
+    public Context unroll() {
+        final List<ContextComponent> unrolled = new ArrayList<>(2);
+
+        if (n > 0)
+            unrolled.add(component);
+        if (n > 1)
+            unrolled.add(ContextFactory.repeated(n - 1, component));
+
+        return ContextFactory.context(unrolled);
     }
 
+    /**
+     * Since every repetition contains the same entities, they are returned only once.
+     * @return The sequence of entities of the repeated component.
+     */
     @Override
     public List<Entity> getEntitiesSequence() {
-        final List<Entity> seq = new ArrayList<>();
-        
-        final List<ContextComponent> ctx = sequence.getContext();
-        for (final ContextComponent comp : ctx) {
-            final List<Entity> entitiesSeq = comp.getEntitiesSequence();
-            seq.addAll(entitiesSeq);
-        }
-        
-        return seq;
+        return n > 0 ? component.getEntitiesSequence() : new ArrayList<>();
     }
 
     @Override
     public Set<Entity> getEntitiesSet() {
-        final Set<Entity> s = new HashSet<>();
-
-        for (final ContextComponent comp : sequence.getContext())
-            s.addAll(comp.getEntitiesSet());
-
-        return s;
+        return n > 0 ? component.getEntitiesSet() : new HashSet<>();
     }
     
     @Override
     public String toString() {
-        final StringBuilder s = new StringBuilder();
-        
-        final List<ContextComponent> ctx = sequence.getContext();
-        for (int i = 0; i < ctx.size(); ++i)
-            s.append(ctx.get(i)).append(i < ctx.size() - 1 ? "." : "");
-        
-        return s.toString();
+        return "<" + n + "," + component.toSequenceString() + ">";
     }
 
     @Override
@@ -69,15 +87,12 @@ public class RepeatedContextComponent extends ContextComponent {
         if (this.getClass() != o.getClass()) return false;
 
         RepeatedContextComponent other = (RepeatedContextComponent) o;
-        return sequence.equals(other.sequence);
+        if (hash != other.hash || bothCanonical(other)) return false;
+        return n == other.n && component.equals(other.component);
     }
 
     @Override
     public int hashCode() {
-        int result = 17;
-
-        result = result * 37 + sequence.hashCode();
-
-        return result;
+        return hash;
     }
 }
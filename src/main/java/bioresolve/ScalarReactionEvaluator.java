@@ -0,0 +1,49 @@
+package bioresolve;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates the compiled reactions one after another: a reaction <i>(R, I, P)</i> is enabled by a set <i>W</i> if
+ * <i>(W &amp; R) == R</i> and <i>(W &amp; I) == 0</i>, in which case <i>P</i> is OR-ed into a reusable accumulator.
+ */
+public class ScalarReactionEvaluator extends ReactionEvaluator {
+    private final long[] current;
+    private final long[] accumulator;
+
+    /**
+     * @param masks The compiled reactions.
+     */
+    public ScalarReactionEvaluator(final ReactionMasks masks) {
+        super(masks);
+
+        this.current = new long[masks.words];
+        this.accumulator = new long[masks.words];
+    }
+
+    @Override
+    public EntitySet computeResults(final EntitySet wSet) {
+        final int words = masks.words;
+        final long[] reactants = masks.reactants;
+        final long[] inhibitors = masks.inhibitors;
+        final long[] products = masks.products;
+
+        masks.load(wSet, current);
+        Arrays.fill(accumulator, 0);
+
+        reactions:
+        for (int r = 0, base = 0; r < masks.reactions.length; ++r, base += words) {
+            for (int k = 0; k < words; ++k) {
+                final long w = current[k];
+                if ((w & reactants[base + k]) != reactants[base + k] || (w & inhibitors[base + k]) != 0)
+                    continue reactions;
+            }
+
+            for (int k = 0; k < words; ++k)
+                accumulator[k] |= products[base + k];
+
+            reactionActivated(r);
+        }
+
+        return masks.toSet(accumulator);
+    }
+}
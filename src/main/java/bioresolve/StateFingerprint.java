@@ -0,0 +1,53 @@
+package bioresolve;
+
+/**
+ * Computes the 64-bit fingerprint of a state, by mixing its parts one after another.
+ */
+public final class StateFingerprint {
+    private long hash;
+    private long length;
+
+    public StateFingerprint() {
+        this.hash = 0x6A09E667F3BCC909L;
+    }
+
+    /**
+     * @param key The encoding of a state.
+     * @return The fingerprint of the state.
+     */
+    public static long of(final long[] key) {
+        final StateFingerprint fp = new StateFingerprint();
+
+        for (final long v : key)
+            fp.add(v);
+
+        return fp.value();
+    }
+
+    /**
+     * @param v A part of the state.
+     * @return This fingerprint.
+     */
+    public StateFingerprint add(final long v) {
+        hash = (Long.rotateLeft(hash, 31) ^ mix(v + length)) * 0x9E3779B97F4A7C15L;
+        ++length;
+
+        return this;
+    }
+
+    /**
+     * @return The fingerprint.
+     */
+    public long value() {
+        return mix(hash ^ length);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
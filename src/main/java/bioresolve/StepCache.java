@@ -0,0 +1,274 @@
+package bioresolve;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of the step function of a reaction system, mapping a set of entities to the results of the reactions
+ * on it.<br>
+ * The cache is keyed by the canonical encoding of the set (its bitset words, without trailing zeroes), and is shared by
+ * every manager computing on the same {@link ReactionSystem}. It is split into independently locked segments, hence it
+ * can be used concurrently. The maximum size is divided exactly between the segments, thus it is never exceeded (smaller
+ * caches have fewer segments, each one holding at least a step).<br>
+ * The cached results are shared between the callers, so they must never be modified.
+ */
+public class StepCache {
+    private static final int SEGMENTS = 16; // At most, and a power of two
+
+    private final Segment[] segments;
+    private final EvictionPolicy policy;
+    private final int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize The maximum number of cached steps.
+     * @param policy The policy used to choose which step to evict when the cache is full.
+     * @throws IllegalArgumentException If the size is not positive.
+     */
+    public StepCache(final int maximumSize, final EvictionPolicy policy) throws IllegalArgumentException {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("The size of the cache has to be positive.");
+
+        this.maximumSize = maximumSize;
+        this.policy = policy;
+        this.segments = new Segment[Integer.highestOneBit(Math.min(SEGMENTS, maximumSize))];
+
+        // The remainder of the division is spread over the first segments
+        final int segmentSize = maximumSize / segments.length;
+        final int remainder = maximumSize % segments.length;
+        for (int i = 0; i < segments.length; ++i)
+            segments[i] = new Segment(segmentSize + (i < remainder ? 1 : 0));
+    }
+
+    /**
+     * Returns the cached result for the given set, computing and caching it if absent. The computation is performed
+     * outside any lock, thus concurrent misses on the same set may compute it more than once.
+     * @param wSet The set on which the reactions are computed.
+     * @param step The function computing the results.
+     * @return The (possibly cached) results.
+     */
+    public EntitySet computeIfAbsent(final EntitySet wSet, final Function<EntitySet, EntitySet> step) {
+        final Key key = new Key(wSet.words());
+        final Segment segment = segments[(int) (key.hash >>> 60) & (segments.length - 1)];
+
+        final EntitySet cached = segment.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+
+        final EntitySet res = step.apply(wSet);
+        segment.put(key, res);
+
+        return res;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The ratio between the hits and the total requests, or 0 if no request has been performed.
+     */
+    public double getHitRate() {
+        final long h = getHits();
+        final long total = h + getMisses();
+
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return The number of cached steps.
+     */
+    public int size() {
+        int res = 0;
+
+        for (final Segment s : segments)
+            res += s.size();
+
+        return res;
+    }
+
+    /**
+     * Removes all the cached steps and resets the counters.
+     */
+    public void clear() {
+        for (final Segment s : segments)
+            s.clear();
+
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "Step cache (" + policy + ", " + size() + "/" + maximumSize + " steps): " + getHits() + " hits, " +
+                getMisses() + " misses, " + getEvictions() + " evictions, hit rate " +
+                String.format("%.2f", getHitRate() * 100) + "%";
+    }
+
+    /**
+     * The canonical encoding of a set: its words without the trailing zeroes, together with a 64-bit hash.
+     */
+    private static final class Key {
+        private final long[] words;
+        private final long hash;
+
+        private Key(final long[] words) {
+            int len = words.length;
+            while (len > 0 && words[len - 1] == 0) --len;
+
+            this.words = Arrays.copyOf(words, len);
+
+            long h = len;
+            for (final long w : this.words)
+                h = mix(h * 0x9E3779B97F4A7C15L + w);
+            this.hash = h;
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null) return false;
+            if (this.getClass() != o.getClass()) return false;
+
+            Key k = (Key) o;
+            return hash == k.hash && Arrays.equals(words, k.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) hash;
+        }
+    }
+
+    /**
+     * An independently locked part of the cache, ordered from the least to the most recently used entry.
+     */
+    private final class Segment {
+        private final int capacity;
+        private final LinkedHashMap<Key, EntitySet> entries;
+        private final FrequencySketch sketch;
+
+        private Segment(final int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+            this.sketch = policy == EvictionPolicy.TINY_LFU ? new FrequencySketch(capacity) : null;
+        }
+
+        private synchronized EntitySet get(final Key key) {
+            if (sketch != null) sketch.increment(key.hash);
+
+            return entries.get(key);
+        }
+
+        private synchronized void put(final Key key, final EntitySet value) {
+            if (entries.containsKey(key))
+                return;
+
+            if (entries.size() >= capacity) {
+                final Iterator<Map.Entry<Key, EntitySet>> eldest = entries.entrySet().iterator();
+                final Key victim = eldest.next().getKey();
+
+                // TinyLFU admission: keep the victim if the candidate is not requested more frequently
+                if (sketch != null && sketch.frequency(key.hash) <= sketch.frequency(victim.hash))
+                    return;
+
+                eldest.remove();
+                evictions.increment();
+            }
+
+            entries.put(key, value);
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            if (sketch != null) sketch.clear();
+        }
+    }
+
+    /**
+     * A count-min sketch estimating how frequently each key has been requested. The counters are halved periodically, so
+     * that old requests gradually lose their weight.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+
+        private final int[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(final int capacity) {
+            final int width = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1);
+
+            this.counters = new int[width * DEPTH];
+            this.mask = width - 1;
+            this.sampleSize = capacity * 10;
+        }
+
+        private int index(final long hash, final int row) {
+            final long h = (hash + row * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+            return row * (mask + 1) + ((int) (h >>> 32) & mask);
+        }
+
+        private void increment(final long hash) {
+            for (int row = 0; row < DEPTH; ++row) {
+                final int i = index(hash, row);
+                if (counters[i] < MAX_COUNT) ++counters[i];
+            }
+
+            if (++additions == sampleSize) {
+                for (int i = 0; i < counters.length; ++i)
+                    counters[i] >>>= 1;
+                additions /= 2;
+            }
+        }
+
+        private int frequency(final long hash) {
+            int res = MAX_COUNT;
+
+            for (int row = 0; row < DEPTH; ++row)
+                res = Math.min(res, counters[index(hash, row)]);
+
+            return res;
+        }
+
+        private void clear() {
+            Arrays.fill(counters, 0);
+            additions = 0;
+        }
+    }
+}
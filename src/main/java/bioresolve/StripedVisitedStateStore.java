@@ -0,0 +1,172 @@
+package bioresolve;
+
+/**
+ * A visited state store made of independently locked stripes, each one being an open addressing hash table with linear
+ * probing over the fingerprints. A fingerprint chooses its stripe with its highest bits and its slot with its lowest
+ * ones, thus fingerprints are expected to be well mixed.<br>
+ * The layout of the slots is left to the subclasses. Stripes are created the first time a fingerprint falls in them.
+ */
+public abstract class StripedVisitedStateStore extends VisitedStateStore {
+    private static final int STRIPES = 64; // Must be a power of two
+    private static final long EMPTY = 0; // Marks the empty slots
+    private static final long ZERO_FINGERPRINT = 0x9E3779B97F4A7C15L; // Replaces the (otherwise empty) fingerprint 0
+
+    private final Object[] locks;
+    private final Stripe[] stripes; // Null until used
+    private final int initialCapacity;
+
+    /**
+     * @param expectedSize The number of states expected to be stored. The store grows past it if needed.
+     * @throws IllegalArgumentException If the expected size is negative.
+     */
+    protected StripedVisitedStateStore(final long expectedSize) throws IllegalArgumentException {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("The expected size cannot be negative.");
+
+        this.locks = new Object[STRIPES];
+        this.stripes = new Stripe[STRIPES];
+
+        this.initialCapacity = capacityFor(expectedSize / STRIPES + 1);
+        for (int i = 0; i < STRIPES; ++i)
+            locks[i] = new Object();
+    }
+
+    /**
+     * Creates an empty stripe.
+     * @param capacity The number of slots, a power of two.
+     * @return The new stripe.
+     */
+    protected abstract Stripe newStripe(int capacity);
+
+    @Override
+    public long putIfAbsent(long fingerprint, final long value) {
+        if (fingerprint == EMPTY) fingerprint = ZERO_FINGERPRINT;
+
+        final int s = stripeOf(fingerprint);
+
+        synchronized (locks[s]) {
+            Stripe stripe = stripes[s];
+            if (stripe == null)
+                stripes[s] = stripe = newStripe(initialCapacity);
+
+            final int slot = stripe.find(fingerprint);
+            if (stripe.key(slot) == fingerprint)
+                return stripe.value(slot);
+
+            stripe.set(slot, fingerprint, value);
+
+            if (++stripe.size > stripe.capacity() / 4 * 3) { // Keeps the load factor under 0.75
+                final Stripe grown = newStripe(stripe.capacity() * 2);
+
+                for (int i = 0; i < stripe.capacity(); ++i) {
+                    final long key = stripe.key(i);
+                    if (key != EMPTY) grown.set(grown.find(key), key, stripe.value(i));
+                }
+
+                grown.size = stripe.size;
+                stripes[s] = grown;
+                stripe.release();
+            }
+
+            return ABSENT;
+        }
+    }
+
+    @Override
+    public long get(long fingerprint) {
+        if (fingerprint == EMPTY) fingerprint = ZERO_FINGERPRINT;
+
+        final int s = stripeOf(fingerprint);
+
+        synchronized (locks[s]) {
+            final Stripe stripe = stripes[s];
+            if (stripe == null)
+                return ABSENT;
+
+            final int slot = stripe.find(fingerprint);
+            return stripe.key(slot) == fingerprint ? stripe.value(slot) : ABSENT;
+        }
+    }
+
+    @Override
+    public long size() {
+        long res = 0;
+
+        for (int s = 0; s < STRIPES; ++s) {
+            synchronized (locks[s]) {
+                if (stripes[s] != null) res += stripes[s].size;
+            }
+        }
+
+        return res;
+    }
+
+    @Override
+    public void clear() {
+        for (int s = 0; s < STRIPES; ++s) {
+            synchronized (locks[s]) {
+                final Stripe stripe = stripes[s];
+                if (stripe != null) {
+                    stripes[s] = newStripe(stripe.capacity());
+                    stripe.release();
+                }
+            }
+        }
+    }
+
+    private static int stripeOf(final long fingerprint) {
+        return (int) (fingerprint >>> 58) & (STRIPES - 1);
+    }
+
+    private static int capacityFor(final long entries) {
+        final long slots = Math.max(16, entries * 4 / 3 + 1);
+        if (slots > 1 << 30)
+            throw new IllegalArgumentException("Too many states for a single store.");
+
+        return Integer.highestOneBit((int) slots - 1) << 1;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " (" + size() + " states)";
+    }
+
+    /**
+     * The slots of a stripe, each one holding a fingerprint and its value. Empty slots hold the fingerprint 0.
+     */
+    protected abstract static class Stripe {
+        private int size;
+
+        /**
+         * @return The number of slots.
+         */
+        protected abstract int capacity();
+
+        protected abstract long key(int slot);
+
+        protected abstract long value(int slot);
+
+        protected abstract void set(int slot, long key, long value);
+
+        /**
+         * Called once the stripe has been replaced by a grown or a cleared one, so that it can release its resources.
+         */
+        protected void release() {}
+
+        /**
+         * Finds the slot holding a fingerprint, or the empty slot where it would be inserted.
+         */
+        private int find(final long fingerprint) {
+            final int mask = capacity() - 1;
+
+            int slot = (int) fingerprint & mask;
+            while (true) {
+                final long key = key(slot);
+                if (key == fingerprint || key == EMPTY)
+                    return slot;
+
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+}
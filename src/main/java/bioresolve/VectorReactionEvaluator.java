@@ -0,0 +1,90 @@
+package bioresolve;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates the compiled reactions using the (incubating) JDK Vector API, checking as many reactions at once as there
+ * are lanes in the preferred vector species.<br>
+ * The masks are transposed so that the <i>k</i>-th word of consecutive reactions is contiguous: for each word of the
+ * current set, a broadcast is compared against a whole vector of reaction masks.<br>
+ * This class must only be loaded if the <i>jdk.incubator.vector</i> module is available (see
+ * {@link ReactionEvaluator#isVectorApiAvailable()}).
+ */
+public class VectorReactionEvaluator extends ReactionEvaluator {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private final int stride; // The number of reactions, padded to a multiple of the lanes
+    private final long[] reactants; // reactants[k * stride + r] is the k-th word of the reaction r
+    private final long[] inhibitors;
+
+    private final long[] current;
+    private final long[] accumulator;
+
+    /**
+     * @param masks The compiled reactions.
+     */
+    public VectorReactionEvaluator(final ReactionMasks masks) {
+        super(masks);
+
+        final int n = masks.size();
+        final int words = masks.words;
+
+        this.stride = SPECIES.loopBound(n + SPECIES.length() - 1);
+        this.reactants = new long[words * stride];
+        this.inhibitors = new long[words * stride];
+
+        // The padding reactions have no reactants and all the inhibitors: they are never enabled but by the empty set,
+        // and are discarded anyway by checking the lane index
+        Arrays.fill(inhibitors, -1L);
+
+        for (int r = 0; r < n; ++r)
+            for (int k = 0; k < words; ++k) {
+                reactants[k * stride + r] = masks.reactants[r * words + k];
+                inhibitors[k * stride + r] = masks.inhibitors[r * words + k];
+            }
+
+        this.current = new long[words];
+        this.accumulator = new long[words];
+    }
+
+    @Override
+    public EntitySet computeResults(final EntitySet wSet) {
+        final int n = masks.size();
+        final int words = masks.words;
+        final long[] products = masks.products;
+
+        masks.load(wSet, current);
+        Arrays.fill(accumulator, 0);
+
+        for (int j = 0; j < stride; j += SPECIES.length()) {
+            VectorMask<Long> enabled = SPECIES.maskAll(true);
+
+            for (int k = 0; k < words && enabled.anyTrue(); ++k) {
+                final LongVector w = LongVector.broadcast(SPECIES, current[k]);
+                final LongVector r = LongVector.fromArray(SPECIES, reactants, k * stride + j);
+                final LongVector i = LongVector.fromArray(SPECIES, inhibitors, k * stride + j);
+
+                enabled = enabled
+                        .and(w.and(r).compare(VectorOperators.EQ, r))
+                        .and(w.and(i).compare(VectorOperators.EQ, 0));
+            }
+
+            for (long lanes = enabled.toLong(); lanes != 0; lanes &= lanes - 1) {
+                final int r = j + Long.numberOfTrailingZeros(lanes);
+                if (r >= n) break;
+
+                for (int k = 0, base = r * words; k < words; ++k)
+                    accumulator[k] |= products[base + k];
+
+                reactionActivated(r);
+            }
+        }
+
+        return masks.toSet(accumulator);
+    }
+}
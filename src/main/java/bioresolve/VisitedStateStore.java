@@ -0,0 +1,39 @@
+package bioresolve;
+
+/**
+ * The store of the states visited while exploring, identified by their 64-bit fingerprints.<br>
+ * Each fingerprint is associated with a value (e.g. the id of the manager which first visited the state). The store is
+ * shared by all the managers, hence the implementations have to support concurrent insertions.
+ * @see ManagersCoordinator#setVisitedStateStore(VisitedStateStore)
+ */
+public abstract class VisitedStateStore {
+    /**
+     * The value returned by {@link #putIfAbsent(long, long)} and {@link #get(long)} when a fingerprint is absent. It
+     * cannot be used as a value.
+     */
+    public static final long ABSENT = Long.MIN_VALUE;
+
+    /**
+     * Associates a value with a fingerprint, unless it is already present.
+     * @param fingerprint The fingerprint of the state.
+     * @param value The value to associate with the fingerprint.
+     * @return {@link #ABSENT} if the fingerprint was absent, the value already associated with it otherwise.
+     */
+    public abstract long putIfAbsent(long fingerprint, long value);
+
+    /**
+     * @param fingerprint The fingerprint of the state.
+     * @return The value associated with the fingerprint, or {@link #ABSENT} if it is absent.
+     */
+    public abstract long get(long fingerprint);
+
+    /**
+     * @return The number of stored fingerprints.
+     */
+    public abstract long size();
+
+    /**
+     * Removes all the fingerprints.
+     */
+    public abstract void clear();
+}
@@ -0,0 +1,127 @@
+package bioresolve;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the binary models hold the same reactions, environment and contexts as their sources, and that stale or
+ * corrupted files are detected.
+ */
+class BinaryModelTest {
+    private static final String REACTIONS = "([a],[c],[b]), ([b],[],[a,c]), ([a,b],[f],[d]), ([c],[a],[e]), ([d,e],[f],[a])";
+    private static final String ENVIRONMENT = "x = ({a}.x + {b}.y + {c}.<3,{a,d}>.x), y = ({a,b}.y + {}.nil), z = <2,(x + {e}.z)>";
+    private static final String CONTEXT = "x, y + {f}.z";
+
+    private static Model model;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void loadModel() throws ModelParseException {
+        model = new Model(
+                ModelLoader.loadReactions(new StringReader(REACTIONS)),
+                ModelLoader.loadEnvironment(new StringReader(ENVIRONMENT)),
+                ModelLoader.loadContext(new StringReader(CONTEXT))
+        );
+    }
+
+    /**
+     * @return Every subset of the entities of the reaction system.
+     */
+    private static List<Set<Entity>> subsets(final ReactionSystem rs) {
+        final List<Entity> entities = new ArrayList<>(rs.getEntities());
+        final List<Set<Entity>> res = new ArrayList<>();
+
+        for (int mask = 0; mask < 1 << entities.size(); ++mask) {
+            final List<String> symbols = new ArrayList<>();
+            for (int i = 0; i < entities.size(); ++i)
+                if ((mask & 1 << i) != 0)
+                    symbols.add(entities.get(i).toString());
+
+            res.add(Entity.createSetFromStringsArr(symbols.toArray(new String[0])));
+        }
+
+        return res;
+    }
+
+    @Test
+    void readsTheModelItWrote() throws IOException {
+        final Path file = directory.resolve("model.brs");
+        BinaryModel.write(file, model, BinaryModel.hashSources(REACTIONS, ENVIRONMENT, CONTEXT));
+
+        final Model read = BinaryModel.read(file);
+
+        assertEquals(model.reactionSystem().getEntities(), read.reactionSystem().getEntities());
+        assertEquals(model.reactionSystem().getReactions().size(), read.reactionSystem().getReactions().size());
+        for (final Set<Entity> s : subsets(model.reactionSystem()))
+            assertEquals(model.reactionSystem().computeResults(s), read.reactionSystem().computeResults(s), s.toString());
+
+        assertEquals(model.environment().getEnv(), read.environment().getEnv());
+        assertEquals(model.contexts(), read.contexts());
+        assertEquals(0, BinaryModel.readSources(file).length);
+    }
+
+    @Test
+    void detectsStaleModels() throws IOException {
+        final Path file = directory.resolve("model.brs");
+        BinaryModel.write(file, model, BinaryModel.hashSources(REACTIONS, ENVIRONMENT, CONTEXT));
+
+        assertTrue(BinaryModel.isUpToDate(file, BinaryModel.hashSources(REACTIONS, ENVIRONMENT, CONTEXT)));
+        assertFalse(BinaryModel.isUpToDate(file, BinaryModel.hashSources(REACTIONS, ENVIRONMENT, "x, y")));
+
+        // The boundaries between the sources are part of the hash
+        assertFalse(BinaryModel.isUpToDate(file, BinaryModel.hashSources(REACTIONS + ENVIRONMENT, CONTEXT, "")));
+    }
+
+    @Test
+    void recordsTheSourceFiles() throws IOException {
+        final Path reactions = Files.writeString(directory.resolve("reactions.txt"), REACTIONS);
+        final Path environment = Files.writeString(directory.resolve("environment.txt"), ENVIRONMENT);
+        final Path context = Files.writeString(directory.resolve("context.txt"), CONTEXT);
+        final Path file = directory.resolve("model.brs");
+
+        BinaryModel.write(file, model, reactions, environment, context);
+
+        assertArrayEquals(new Path[] {reactions.toAbsolutePath(), environment.toAbsolutePath(), context.toAbsolutePath()},
+                BinaryModel.readSources(file));
+        assertTrue(BinaryModel.isUpToDate(file, BinaryModel.hashSources(reactions, environment, context)));
+
+        Files.writeString(context, "y");
+        assertFalse(BinaryModel.isUpToDate(file, BinaryModel.hashSources(reactions, environment, context)));
+    }
+
+    @Test
+    void rejectsCorruptedFiles() throws IOException {
+        final Path file = directory.resolve("model.brs");
+        BinaryModel.write(file, model, BinaryModel.hashSources(REACTIONS, ENVIRONMENT, CONTEXT));
+        final byte[] bytes = Files.readAllBytes(file);
+
+        final byte[] corrupted = bytes.clone();
+        corrupted[corrupted.length - 1] ^= 1;
+        final Path corruptedFile = Files.write(directory.resolve("corrupted.brs"), corrupted);
+        final IOException payload = assertThrows(IOException.class, () -> BinaryModel.read(corruptedFile));
+        assertTrue(payload.getMessage().contains("corrupted"), payload.getMessage());
+
+        final byte[] version = bytes.clone();
+        version[7] ^= 1;
+        final Path versionFile = Files.write(directory.resolve("version.brs"), version);
+        assertThrows(IOException.class, () -> BinaryModel.read(versionFile));
+        assertThrows(IOException.class, () -> BinaryModel.isUpToDate(versionFile, new byte[32]));
+
+        final Path text = Files.writeString(directory.resolve("reactions.txt"), REACTIONS);
+        final IOException notAModel = assertThrows(IOException.class, () -> BinaryModel.read(text));
+        assertTrue(notAModel.getMessage().contains("is not a binary model"), notAModel.getMessage());
+    }
+}
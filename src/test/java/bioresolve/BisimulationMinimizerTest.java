@@ -0,0 +1,170 @@
+package bioresolve;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the quotients computed by the minimizer with the coarsest bisimulation computed by a naive fixpoint, which
+ * splits the classes by the labels and the target classes of their edges until no class is split.
+ */
+class BisimulationMinimizerTest {
+    private static final String[] SYMBOLS = {"a", "b", "c", "d"};
+    private static final EntityTable TABLE = new EntityTable(Entity.createSetFromStringsArr(SYMBOLS));
+
+    /**
+     * @param mask The entities of the set, as a bit per symbol.
+     * @return The set.
+     */
+    private static EntitySet set(final int mask) {
+        final List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < SYMBOLS.length; ++i)
+            if ((mask & 1 << i) != 0)
+                symbols.add(SYMBOLS[i]);
+
+        return TABLE.setOf(Entity.createSetFromStringsArr(symbols.toArray(new String[0])));
+    }
+
+    /**
+     * @param results The result of each node, as a mask of the symbols.
+     * @param edges The (from, to, label) triples of the edges, the label being a mask of the symbols.
+     * @return The graph, whose nodes are told apart by their contexts.
+     */
+    private static OffHeapGraph graph(final int[] results, final int[][] edges) {
+        final OffHeapGraph graph = new OffHeapGraph();
+
+        for (final int[] e : edges)
+            graph.addEdge(new NodePair(set(results[e[0]]), "p" + e[0], set(results[e[1]]), "p" + e[1], set(e[2])));
+
+        return graph;
+    }
+
+    /**
+     * @return The class of each node of the graph by the coarsest bisimulation, the classes being numbered from 0.
+     */
+    private static int[] naiveClasses(final OffHeapGraph graph) {
+        final int nodes = graph.nodeCount();
+
+        final Map<EntitySet, Integer> results = new HashMap<>();
+        int[] classes = new int[nodes];
+        for (int i = 0; i < nodes; ++i)
+            classes[i] = results.computeIfAbsent(graph.nodeResult(i), k -> results.size());
+
+        int classesNumber = results.size();
+        while (true) {
+            final List<Set<List<Integer>>> moves = new ArrayList<>();
+            for (int i = 0; i < nodes; ++i)
+                moves.add(new HashSet<>());
+            for (int e = 0; e < graph.edgeCount(); ++e)
+                moves.get(graph.edgeFrom(e)).add(List.of(graph.edgeLabel(e), classes[graph.edgeTo(e)]));
+
+            final Map<List<Object>, Integer> signatures = new HashMap<>();
+            final int[] refined = new int[nodes];
+            for (int i = 0; i < nodes; ++i)
+                refined[i] = signatures.computeIfAbsent(List.of(classes[i], moves.get(i)), k -> signatures.size());
+
+            if (signatures.size() == classesNumber)
+                return classes;
+
+            classes = refined;
+            classesNumber = signatures.size();
+        }
+    }
+
+    /**
+     * Checks that the quotient is made of the first node of each class, and of the edges of the classes.
+     */
+    private static void assertQuotient(final OffHeapGraph graph, final int expectedClasses) {
+        final int[] classes = naiveClasses(graph);
+        assertEquals(expectedClasses, Arrays.stream(classes).distinct().count());
+
+        final int[] representatives = new int[graph.nodeCount()];
+        Arrays.fill(representatives, -1);
+        for (int i = 0; i < classes.length; ++i)
+            if (representatives[classes[i]] < 0)
+                representatives[classes[i]] = i;
+
+        final Set<List<Object>> expectedEdges = new HashSet<>();
+        for (int e = 0; e < graph.edgeCount(); ++e)
+            expectedEdges.add(List.of(
+                    graph.nodeContext(representatives[classes[graph.edgeFrom(e)]]),
+                    graph.nodeContext(representatives[classes[graph.edgeTo(e)]]),
+                    graph.label(graph.edgeLabel(e))
+            ));
+
+        final OffHeapGraph quotient = BisimulationMinimizer.minimize(graph);
+        try {
+            assertEquals(expectedClasses, quotient.nodeCount());
+
+            final Set<List<Object>> edges = new HashSet<>();
+            for (int e = 0; e < quotient.edgeCount(); ++e)
+                edges.add(List.of(
+                        quotient.nodeContext(quotient.edgeFrom(e)),
+                        quotient.nodeContext(quotient.edgeTo(e)),
+                        quotient.label(quotient.edgeLabel(e))
+                ));
+
+            assertEquals(expectedEdges.size(), quotient.edgeCount());
+            assertEquals(expectedEdges, edges);
+        } finally {
+            quotient.clear();
+            graph.clear();
+        }
+    }
+
+    @Test
+    void mergesSelfLoopsWithCycles() {
+        // 0 loops on itself, 1 and 2 loop on each other: all of them are bisimilar
+        assertQuotient(graph(new int[] {1, 1, 1}, new int[][] {{0, 0, 2}, {1, 2, 2}, {2, 1, 2}}), 1);
+
+        // A self-loop with another label is not
+        assertQuotient(graph(new int[] {1, 1, 1, 1}, new int[][] {{0, 0, 2}, {1, 2, 2}, {2, 1, 2}, {3, 3, 4}}), 2);
+    }
+
+    @Test
+    void separatesEqualLabelsTowardsDifferentSuccessors() {
+        // 0 and 1 have the same result and the same label, but their targets have different results
+        assertQuotient(graph(new int[] {1, 1, 2, 4}, new int[][] {{0, 2, 8}, {1, 3, 8}}), 4);
+
+        // 0 chooses between two branches when moving, 3 chooses after moving: not bisimilar
+        assertQuotient(graph(new int[] {1, 2, 2, 1, 2, 4, 8}, new int[][] {
+                {0, 1, 1}, {0, 2, 1}, {1, 5, 2}, {2, 6, 4},
+                {3, 4, 1}, {4, 5, 2}, {4, 6, 4}
+        }), 7);
+    }
+
+    @Test
+    void mergesEqualBranches() {
+        // The two branches of 0 behave alike, hence the quotient is a chain
+        assertQuotient(graph(new int[] {1, 2, 2, 4, 4}, new int[][] {
+                {0, 1, 8}, {0, 2, 8}, {1, 3, 1}, {2, 4, 1}, {3, 3, 2}, {4, 4, 2}
+        }), 3);
+    }
+
+    @Test
+    void keepsAMinimalGraph() {
+        assertQuotient(graph(new int[] {1, 2, 4, 8}, new int[][] {{0, 1, 1}, {1, 2, 2}, {2, 3, 4}, {3, 0, 8}}), 4);
+        assertQuotient(graph(new int[] {1, 1, 1}, new int[][] {{0, 1, 1}, {1, 2, 1}}), 3);
+    }
+
+    @Test
+    void agreesWithTheFixpointOnRandomGraphs() {
+        final Random random = new Random(42);
+
+        for (int round = 0; round < 300; ++round) {
+            final int nodes = 2 + random.nextInt(12);
+            final int[] results = new int[nodes];
+            for (int i = 0; i < nodes; ++i)
+                results[i] = random.nextInt(3);
+
+            final int[][] edges = new int[1 + random.nextInt(3 * nodes)][];
+            for (int e = 0; e < edges.length; ++e)
+                edges[e] = new int[] {random.nextInt(nodes), random.nextInt(nodes), 1 + random.nextInt(2)};
+
+            final OffHeapGraph graph = graph(results, edges);
+            assertQuotient(graph, (int) Arrays.stream(naiveClasses(graph)).distinct().count());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package bioresolve;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the bitstate store, and in particular the false positives it reports.
+ */
+class BitstateVisitedStateStoreTest {
+    @Test
+    void findsEveryRecordedState() {
+        final BitstateVisitedStateStore store = new BitstateVisitedStateStore(1 << 20, 3);
+
+        for (int i = 0; i < 1000; ++i)
+            store.putIfAbsent(StateFingerprint.mix(i), i);
+
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(0, store.get(StateFingerprint.mix(i))); // Values are not stored
+            assertEquals(0, store.putIfAbsent(StateFingerprint.mix(i), i));
+        }
+
+        assertEquals(1000, store.size());
+    }
+
+    @Test
+    void reportsNoOmissionWhenEmpty() {
+        final BitstateVisitedStateStore store = new BitstateVisitedStateStore(1 << 10, 2);
+
+        assertEquals(0, store.getFillRatio());
+        assertEquals(0, store.getOmissionProbability());
+        assertEquals(0, store.getExpectedOmissions());
+        assertEquals(1, store.getEstimatedCoverage());
+    }
+
+    @Test
+    void reportsTheFalsePositives() {
+        final int hashes = 2;
+        final BitstateVisitedStateStore store = new BitstateVisitedStateStore(1 << 12, hashes);
+
+        int omitted = 0;
+        for (int i = 0; i < 3000; ++i)
+            if (store.putIfAbsent(StateFingerprint.mix(i), 0) != VisitedStateStore.ABSENT)
+                ++omitted; // A new state wrongly considered visited
+
+        assertTrue(omitted > 0, "The array is small enough for false positives");
+        assertEquals(3000 - omitted, store.size());
+
+        final double expected = store.getExpectedOmissions();
+        assertEquals(omitted, expected, omitted * 0.1);
+        assertEquals(store.size() / (store.size() + expected), store.getEstimatedCoverage(), 1e-9);
+        assertTrue(store.getEstimatedCoverage() < 1);
+        assertEquals(Math.pow(store.getFillRatio(), hashes), store.getOmissionProbability(), 1e-12);
+
+        // The omission probability matches the fraction of the new states wrongly considered visited
+        int falsePositives = 0;
+        for (int i = 3000; i < 13000; ++i)
+            if (store.get(StateFingerprint.mix(i)) != VisitedStateStore.ABSENT)
+                ++falsePositives;
+
+        assertEquals(store.getOmissionProbability(), falsePositives / 10000.0, 0.03);
+    }
+
+    @Test
+    void considersEveryStateVisitedOnceFull() {
+        final BitstateVisitedStateStore store = new BitstateVisitedStateStore(64, 1);
+
+        for (int i = 0; i < 10000 && store.getFillRatio() < 1; ++i)
+            store.putIfAbsent(StateFingerprint.mix(i), 0);
+
+        assertEquals(1, store.getFillRatio());
+        assertEquals(1, store.getOmissionProbability());
+        assertEquals(0, store.get(42));
+        assertEquals(0, store.putIfAbsent(42, 0));
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, store.getFillRatio());
+        assertEquals(VisitedStateStore.ABSENT, store.get(42));
+    }
+}
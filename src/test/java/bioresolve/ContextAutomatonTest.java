@@ -0,0 +1,58 @@
+package bioresolve;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the states of the context automaton are shared by the equal program points, and that their ids do not
+ * depend on whether they have been garbage collected in the meantime.
+ */
+class ContextAutomatonTest {
+    /**
+     * @return The ids of the states reached by following the steps of the context.
+     */
+    private static List<Integer> walk(final ContextAutomaton automaton, final Context ctx, final int steps) {
+        final List<Integer> ids = new ArrayList<>();
+
+        ContextAutomaton.State state = automaton.initialState(ctx);
+        for (int i = 0; i < steps; ++i) {
+            ids.add(state.getId());
+            state = state.step().getNext();
+        }
+
+        return ids;
+    }
+
+    @Test
+    void sharesTheStatesOfRecursiveContexts() {
+        final ContextAutomaton automaton = new Environment(ContextParser.parseEnvironment("x = {a}.{b}.x")).getAutomaton();
+        final ContextAutomaton.State initial = automaton.initialState(ContextParser.parseContext("x"));
+
+        final ContextAutomaton.State a = initial.step().getNext();
+        final ContextAutomaton.State b = a.step().getNext();
+
+        assertSame(a, b.step().getNext());
+        assertNotEquals(a.getId(), b.getId());
+    }
+
+    @Test
+    void keepsTheIdsOfCollectedStates() throws InterruptedException {
+        final ContextAutomaton automaton = new Environment(ContextParser.parseEnvironment("x = <50,{a}>.{b}.x")).getAutomaton();
+        final Context ctx = ContextParser.parseContext("x");
+
+        final List<Integer> ids = walk(automaton, ctx, 120);
+        assertEquals(52, ids.stream().distinct().count());
+
+        // The states are no longer referenced, hence they are eventually collected
+        for (int i = 0; i < 50 && automaton.size() > 0; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertEquals(ids, walk(automaton, ctx, 120));
+    }
+}
@@ -0,0 +1,123 @@
+package bioresolve;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the parser of the contexts and of the environments, including the positions of the reported errors.
+ */
+class ContextParserTest {
+    private static ModelParseException error(final Executable parse) {
+        return assertThrows(ModelParseException.class, parse);
+    }
+
+    @Test
+    void parsesSequences() {
+        final Context ctx = ContextParser.parseContext("{a, b}.{}.<3,{c}>.x");
+        final List<ContextComponent> components = ctx.getContext();
+
+        assertEquals(4, components.size());
+        assertEquals(List.of(new Entity("a"), new Entity("b")), ((EntitiesContextComponent) components.get(0)).getEntities());
+        assertTrue(((EntitiesContextComponent) components.get(1)).getEntities().isEmpty());
+
+        final RepeatedContextComponent repeated = (RepeatedContextComponent) components.get(2);
+        assertEquals(3, repeated.getRepetitions());
+        assertEquals("{c}", repeated.getRepeatedComponent().toString());
+
+        assertEquals("x", ((IdContextComponent) components.get(3)).getId());
+        assertEquals("{a,b}.{}.<3,{c}>.x", ctx.toString());
+    }
+
+    @Test
+    void parsesChoices() {
+        final Context ctx = ContextParser.parseContext("{a}.x + {b}.({c}.nil + y)");
+
+        assertEquals(1, ctx.getContext().size());
+        final List<Context> choices = ((ChoiceContextComponent) ctx.getContext().get(0)).getChoices();
+        assertEquals(2, choices.size());
+        assertEquals("{a}.x", choices.get(0).toString());
+
+        final List<ContextComponent> second = choices.get(1).getContext();
+        assertEquals(2, second.size());
+        assertEquals(2, ((ChoiceContextComponent) second.get(1)).getChoices().size());
+        assertInstanceOf(NilContextComponent.class,
+                ((ChoiceContextComponent) second.get(1)).getChoices().get(0).getContext().get(1));
+    }
+
+    @Test
+    void splicesSingleParenthesizedAlternatives() {
+        assertEquals(ContextParser.parseContext("{a}.{b}.{c}"), ContextParser.parseContext("({a}.({b})).{c}"));
+        assertEquals(3, ContextParser.parseContext("({a}.{b}).{c}").getContext().size());
+    }
+
+    @Test
+    void parsesParallelContexts() {
+        final List<Context> contexts = ContextParser.parseParallel("x, {a}.y + {b}.nil,\n<2,{c}>.z");
+
+        assertEquals(3, contexts.size());
+        assertEquals("x", contexts.get(0).toString());
+        assertInstanceOf(ChoiceContextComponent.class, contexts.get(1).getContext().get(0));
+        assertEquals("<2,{c}>.z", contexts.get(2).toString());
+    }
+
+    @Test
+    void parsesEnvironments() {
+        final Map<String, Context> env = ContextParser.parseEnvironment("x = {a}.x + {b}.y,\n y = <2,{c}>.nil, z = nil");
+
+        assertEquals(Map.of(
+                "x", ContextParser.parseContext("{a}.x + {b}.y"),
+                "y", ContextParser.parseContext("<2,{c}>.nil"),
+                "z", ContextParser.parseContext("nil")
+        ), env);
+
+        assertTrue(ContextParser.parseEnvironment("").isEmpty());
+        assertTrue(ContextParser.parseEnvironment("  \n ").isEmpty());
+    }
+
+    @Test
+    void reportsTheLineAndColumnOfErrors() {
+        final ModelParseException entity = error(() -> ContextParser.parseContext("{a}.\n  {b,}"));
+        assertEquals(2, entity.getLine());
+        assertEquals(6, entity.getColumn());
+        assertEquals("Line 2, column 6: expected an entity but found '}'", entity.getMessage());
+
+        final ModelParseException repetitions = error(() -> ContextParser.parseContext("{a}.<n,{b}>"));
+        assertEquals(1, repetitions.getLine());
+        assertEquals(6, repetitions.getColumn());
+
+        final ModelParseException trailing = error(() -> ContextParser.parseParallel("x, y z"));
+        assertEquals(6, trailing.getColumn());
+        assertTrue(trailing.getMessage().contains("expected ',' or the end of the context"), trailing.getMessage());
+
+        final ModelParseException unterminated = error(() -> ContextParser.parseContext("({a} + {b}"));
+        assertTrue(unterminated.getMessage().endsWith("expected ')' but found the end of the input"),
+                unterminated.getMessage());
+    }
+
+    @Test
+    void rejectsMalformedComponents() {
+        final ModelParseException afterNil = error(() -> ContextParser.parseContext("{a}.nil.{b}"));
+        assertEquals(9, afterNil.getColumn());
+        assertTrue(afterNil.getMessage().contains("nil has to be the last component"), afterNil.getMessage());
+
+        // The position of a repetition is the one of its '<'
+        final ModelParseException repeated = error(() -> ContextParser.parseContext("{a}.<2,({b}.{c})>"));
+        assertEquals(1, repeated.getLine());
+        assertEquals(5, repeated.getColumn());
+        assertTrue(repeated.getMessage().contains("a single component"), repeated.getMessage());
+    }
+
+    @Test
+    void rejectsVariablesDefinedTwice() {
+        final ModelParseException twice = error(() -> ContextParser.parseEnvironment("x = {a}.x,\ny = nil,\n  x = {b}"));
+
+        assertEquals(3, twice.getLine());
+        assertEquals(3, twice.getColumn());
+        assertTrue(twice.getMessage().contains("the variable x has been defined multiple times"), twice.getMessage());
+    }
+}
@@ -0,0 +1,231 @@
+package bioresolve;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the order in which the frontiers poll the managers, in memory and spilled to disk, and that the exploration
+ * strategies reach the same states.
+ */
+class FrontierTest {
+    private static Model model;
+
+    @TempDir
+    static Path directory;
+
+    @BeforeAll
+    static void loadModel() throws ModelParseException {
+        model = new Model(
+                ModelLoader.loadReactions(new StringReader("([a],[c],[b]), ([b],[d],[a,c]), ([a,b],[f],[d]), ([c],[a],[e]), ([d,e],[f],[a]), ([e],[b],[c])")),
+                ModelLoader.loadEnvironment(new StringReader("x = ({a}.x + {b}.y + {c}.<3,{a,d}>.x), y = ({a,b}.y + {c}.x + {d}.z + {e}.nil), z = ({b}.z + {a}.x + {}.<2,{a}>.z)")),
+                ModelLoader.loadContext(new StringReader("x, y"))
+        );
+
+        BioResolve.OUT = false;
+        ManagersCoordinator.setRS(model.reactionSystem());
+        ManagersCoordinator.setGraphOutput(directory.resolve("result.dot"), GraphFormat.DOT, false);
+    }
+
+    private static ProcessManager manager(final int id) {
+        return new ProcessManager(id, model.reactionSystem(),
+                InteractiveProcess.createParallelProcesses(model.environment(), model.contexts()), false);
+    }
+
+    private static List<Integer> pushAndDrain(final Frontier frontier, final int managers) {
+        for (int i = 0; i < managers; ++i)
+            frontier.push(manager(i));
+
+        assertEquals(managers, frontier.size());
+
+        final List<Integer> res = new ArrayList<>();
+        for (ProcessManager m = frontier.poll(); m != null; m = frontier.poll())
+            res.add(m.getManagerId());
+
+        assertTrue(frontier.isEmpty());
+        return res;
+    }
+
+    private static List<Integer> range(final int from, final int to, final int step) {
+        final List<Integer> res = new ArrayList<>();
+        for (int i = from; step > 0 ? i < to : i > to; i += step)
+            res.add(i);
+
+        return res;
+    }
+
+    private static long spillFiles() throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("bioresolve-managers-")).count();
+        }
+    }
+
+    @Test
+    void breadthFirstPollsTheOldestManager() {
+        assertEquals(range(0, 20, 1), pushAndDrain(new BreadthFirstFrontier(), 20));
+    }
+
+    @Test
+    void depthFirstPollsTheNewestManager() {
+        assertEquals(range(19, -1, -1), pushAndDrain(new DepthFirstFrontier(), 20));
+    }
+
+    @Test
+    void spilledFrontiersKeepTheirOrder() throws IOException {
+        final ManagerSpill spill = new ManagerSpill(directory);
+
+        assertEquals(range(0, 20, 1), pushAndDrain(new BreadthFirstFrontier(spill, 4), 20));
+        assertEquals(range(19, -1, -1), pushAndDrain(new DepthFirstFrontier(spill, 4), 20));
+        assertEquals(0, spillFiles());
+    }
+
+    @Test
+    void interleavedPushesKeepTheOrder() {
+        final ManagerSpill spill = new ManagerSpill(directory);
+
+        final Frontier bfs = new BreadthFirstFrontier(spill, 4);
+        final Frontier dfs = new DepthFirstFrontier(spill, 4);
+        final List<Integer> bfsOrder = new ArrayList<>();
+        final List<Integer> dfsOrder = new ArrayList<>();
+
+        for (int i = 0; i < 30; i += 3) {
+            for (int j = i; j < i + 3; ++j) {
+                bfs.push(manager(j));
+                dfs.push(manager(j));
+            }
+
+            bfsOrder.add(bfs.poll().getManagerId());
+            dfsOrder.add(dfs.poll().getManagerId());
+        }
+
+        // BFS polls in the order of the pushes, DFS polls the last push of each round
+        assertEquals(range(0, 10, 1), bfsOrder);
+        assertEquals(range(2, 30, 3), dfsOrder);
+        assertEquals(20, bfs.size());
+        assertEquals(20, dfs.size());
+
+        bfs.clear();
+        dfs.clear();
+    }
+
+    @Test
+    void clearingDiscardsTheSpilledBlocks() throws IOException {
+        final ManagerSpill spill = new ManagerSpill(directory);
+        final Frontier bfs = new BreadthFirstFrontier(spill, 4);
+        final Frontier dfs = new DepthFirstFrontier(spill, 4);
+
+        for (int i = 0; i < 20; ++i) {
+            bfs.push(manager(i));
+            dfs.push(manager(i));
+        }
+        assertTrue(spillFiles() > 0);
+
+        final List<ProcessManager> inMemory = new ArrayList<>(bfs.clear());
+        inMemory.addAll(dfs.clear());
+
+        assertTrue(inMemory.size() < 40);
+        assertTrue(bfs.isEmpty());
+        assertTrue(dfs.isEmpty());
+        assertNull(bfs.poll());
+        assertNull(dfs.poll());
+        assertEquals(0, spillFiles());
+    }
+
+    @Test
+    void iterativeDeepeningReachesTheStatesOfBreadthFirst() {
+        final Set<Long> bfs = explore(ExplorationStrategy.BFS);
+
+        assertFalse(bfs.isEmpty());
+        assertEquals(bfs, explore(ExplorationStrategy.ITERATIVE_DEEPENING));
+        assertEquals(bfs, explore(ExplorationStrategy.DFS));
+    }
+
+    @Test
+    void truncatedExplorationsRetireEveryManager() {
+        final ManagersCoordinator coordinator = ManagersCoordinator.getInstance();
+        ManagersCoordinator.setExplorationStrategy(ExplorationStrategy.BFS);
+        ManagersCoordinator.setMaximumFrontierSize(1);
+        coordinator.resetCoordinator();
+
+        try {
+            coordinator.spawnManager(InteractiveProcess.createParallelProcesses(model.environment(), model.contexts()));
+            coordinator.compute();
+
+            // Neither the managers which ran nor the ones discarded by the full frontier are left registered
+            for (int id = 0; id < coordinator.getManagersNumber(); ++id) {
+                final int managerId = id;
+                assertThrows(IllegalArgumentException.class, () -> coordinator.getManager(managerId));
+            }
+        } finally {
+            coordinator.resetCoordinator();
+            ManagersCoordinator.setMaximumFrontierSize(0);
+            ManagersCoordinator.setExplorationStrategy(ExplorationStrategy.DFS);
+        }
+    }
+
+    /**
+     * @return The fingerprints of the states visited by the exploration.
+     */
+    private static Set<Long> explore(final ExplorationStrategy strategy) {
+        ManagersCoordinator.setExplorationStrategy(strategy);
+
+        final ManagersCoordinator coordinator = ManagersCoordinator.getInstance();
+        final VisitedStateStore previousStore = coordinator.getVisitedStateStore();
+        final RecordingStore store = new RecordingStore();
+        coordinator.resetCoordinator();
+        coordinator.setVisitedStateStore(store);
+
+        try {
+            coordinator.spawnManager(InteractiveProcess.createParallelProcesses(model.environment(), model.contexts()));
+            coordinator.compute();
+
+            return new HashSet<>(store.fingerprints);
+        } finally {
+            coordinator.resetCoordinator();
+            coordinator.setVisitedStateStore(previousStore);
+            ManagersCoordinator.setExplorationStrategy(ExplorationStrategy.DFS);
+        }
+    }
+
+    /**
+     * A visited state store recording the fingerprints it has ever stored since it was last cleared.
+     */
+    private static final class RecordingStore extends VisitedStateStore {
+        private final VisitedStateStore store = new HeapVisitedStateStore(0);
+        private final Set<Long> fingerprints = new HashSet<>();
+
+        @Override
+        public long putIfAbsent(final long fingerprint, final long value) {
+            final long res = store.putIfAbsent(fingerprint, value);
+            if (res == ABSENT)
+                fingerprints.add(fingerprint);
+
+            return res;
+        }
+
+        @Override
+        public long get(final long fingerprint) {
+            return store.get(fingerprint);
+        }
+
+        @Override
+        public long size() {
+            return store.size();
+        }
+
+        @Override
+        public void clear() {
+            store.clear();
+            fingerprints.clear();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package bioresolve;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the parser of the reactions, including the positions of the reported errors.
+ */
+class ReactionParserTest {
+    private static Set<Entity> entities(final String... symbols) {
+        return Entity.createSetFromStringsArr(symbols);
+    }
+
+    private static ModelParseException error(final String reactions) {
+        return assertThrows(ModelParseException.class, () -> ReactionParser.parseReactionSystem(reactions));
+    }
+
+    @Test
+    void parsesReactions() {
+        final ReactionSystem rs = ReactionParser.parseReactionSystem("([a,b],[c],[d]),\n( [ e ] , [f,g] , [a] )");
+
+        assertEquals(entities("a", "b", "c", "d", "e", "f", "g"), rs.getEntities());
+        assertEquals(2, rs.getReactions().size());
+        assertEquals(entities("d"), rs.computeResults(entities("a", "b")));
+        assertEquals(entities("d", "a"), rs.computeResults(entities("a", "b", "e")));
+        assertEquals(entities(), rs.computeResults(entities("a", "b", "c", "e", "g")));
+    }
+
+    @Test
+    void acceptsEmptyInhibitors() {
+        final ReactionSystem rs = ReactionParser.parseReactionSystem("([a],[],[b]), ([b],[ ],[c])");
+
+        assertEquals(entities("a", "b", "c"), rs.getEntities());
+        for (final Reaction r : rs.getReactions())
+            assertTrue(r.getInhibitors().isEmpty());
+
+        assertEquals(entities("b"), rs.computeResults(entities("a")));
+        assertEquals(entities("b", "c"), rs.computeResults(entities("a", "b")));
+    }
+
+    @Test
+    void rejectsEmptyReactantsAndProducts() {
+        final ModelParseException reactants = error("([],[a],[b])");
+        assertEquals(1, reactants.getLine());
+        assertEquals(2, reactants.getColumn());
+        assertTrue(reactants.getMessage().contains("at least one reactant"), reactants.getMessage());
+
+        final ModelParseException products = error("([a],[b],[c]),\n  ([a], [], [])");
+        assertEquals(2, products.getLine());
+        assertEquals(13, products.getColumn());
+        assertTrue(products.getMessage().contains("at least one product"), products.getMessage());
+    }
+
+    @Test
+    void reportsTheLineAndColumnOfErrors() {
+        final ModelParseException trailingComma = error("([a],[b],[c]),\n([a],[b,],[c])");
+        assertEquals(2, trailingComma.getLine());
+        assertEquals(9, trailingComma.getColumn());
+        assertEquals("Line 2, column 9: expected inhibitor but found ']'", trailingComma.getMessage());
+
+        final ModelParseException missingList = error("([a],[b])");
+        assertEquals(1, missingList.getLine());
+        assertEquals(9, missingList.getColumn());
+
+        final ModelParseException trailing = error("([a],[b],[c]) x");
+        assertEquals(1, trailing.getLine());
+        assertEquals(15, trailing.getColumn());
+        assertTrue(trailing.getMessage().contains("expected ',' or the end of the reactions"), trailing.getMessage());
+
+        final ModelParseException unterminated = error("([a],[b],[c]");
+        assertTrue(unterminated.getMessage().endsWith("expected ')' but found the end of the input"),
+                unterminated.getMessage());
+    }
+}
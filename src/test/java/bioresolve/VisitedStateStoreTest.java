@@ -0,0 +1,89 @@
+package bioresolve;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the striped visited state stores: the one on the heap, the one off the heap and the memory-mapped one.
+ */
+class VisitedStateStoreTest {
+    @TempDir
+    static Path directory;
+
+    static List<LongFunction<VisitedStateStore>> stores() {
+        return List.of(
+                HeapVisitedStateStore::new,
+                OffHeapVisitedStateStore::new,
+                expectedSize -> new MappedVisitedStateStore(directory, expectedSize)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void insertsAndFinds(final LongFunction<VisitedStateStore> factory) {
+        final VisitedStateStore store = factory.apply(100);
+
+        assertEquals(VisitedStateStore.ABSENT, store.get(42));
+        assertEquals(VisitedStateStore.ABSENT, store.putIfAbsent(42, 7));
+        assertEquals(7, store.get(42));
+
+        // The first value is kept
+        assertEquals(7, store.putIfAbsent(42, 8));
+        assertEquals(7, store.get(42));
+        assertEquals(1, store.size());
+
+        // 0 marks the empty slots, yet it is a valid fingerprint
+        assertEquals(VisitedStateStore.ABSENT, store.get(0));
+        assertEquals(VisitedStateStore.ABSENT, store.putIfAbsent(0, 3));
+        assertEquals(3, store.get(0));
+        assertEquals(2, store.size());
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(VisitedStateStore.ABSENT, store.get(42));
+        assertEquals(VisitedStateStore.ABSENT, store.get(0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void probesPastCollisions(final LongFunction<VisitedStateStore> factory) {
+        final VisitedStateStore store = factory.apply(0);
+
+        // Same stripe (highest bits) and same initial slot (lowest bits)
+        final long[] fingerprints = new long[8];
+        for (int i = 0; i < fingerprints.length; ++i)
+            fingerprints[i] = 0x0500000000000000L | (long) (i + 1) << 32 | 5;
+
+        for (int i = 0; i < fingerprints.length; ++i)
+            assertEquals(VisitedStateStore.ABSENT, store.putIfAbsent(fingerprints[i], i));
+
+        for (int i = 0; i < fingerprints.length; ++i)
+            assertEquals(i, store.get(fingerprints[i]));
+
+        assertEquals(VisitedStateStore.ABSENT, store.get(0x0500000000000000L | 9L << 32 | 5));
+        assertEquals(fingerprints.length, store.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("stores")
+    void growsPastTheExpectedSize(final LongFunction<VisitedStateStore> factory) {
+        final VisitedStateStore store = factory.apply(0);
+        final int n = 50_000;
+
+        for (int i = 0; i < n; ++i)
+            assertEquals(VisitedStateStore.ABSENT, store.putIfAbsent(StateFingerprint.mix(i), i));
+
+        assertEquals(n, store.size());
+        for (int i = 0; i < n; ++i)
+            assertEquals(i, store.get(StateFingerprint.mix(i)));
+        for (int i = n; i < 2 * n; ++i)
+            assertEquals(VisitedStateStore.ABSENT, store.get(StateFingerprint.mix(i)));
+    }
+}